@@ -0,0 +1,51 @@
+package org.kurodev.calculator.benchmark;
+
+import org.kurodev.calculator.maths.Calculation;
+import org.kurodev.calculator.maths.FormulaParser;
+import org.kurodev.calculator.maths.NumericMode;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The whole pipeline of {@link FormulaParser#calculate(String, Map)}: lexing, conversion to postfix and evaluation.
+ * The parser has no cache, so every invocation parses the formula again.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CalculateBenchmark {
+    @Param({"10", "100", "1000", "10000"})
+    public int tokens;
+    @Param({"0", "16"})
+    public int variables;
+    @Param({"0", "8"})
+    public int customOperations;
+    @Param({"BIG_DECIMAL", "DOUBLE"})
+    public NumericMode mode;
+
+    private FormulaParser parser;
+    private String formula;
+    private Map<String, BigDecimal> scope;
+
+    @Setup
+    public void setup() {
+        parser = new FormulaParser(Formulas.registry(customOperations));
+        parser.setNumericMode(mode);
+        formula = Formulas.generate(tokens, variables, customOperations);
+        scope = Formulas.variables(variables);
+        if (!parser.calculate(formula, scope).isNumber()) {
+            throw new IllegalStateException("benchmark formula does not calculate: " + formula);
+        }
+    }
+
+    @Benchmark
+    public Calculation calculate() {
+        return parser.calculate(formula, scope);
+    }
+}
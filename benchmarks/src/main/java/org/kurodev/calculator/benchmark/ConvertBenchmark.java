@@ -0,0 +1,42 @@
+package org.kurodev.calculator.benchmark;
+
+import org.kurodev.calculator.maths.PostfixConverter;
+import org.kurodev.calculator.maths.PostfixExpression;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lexing and conversion to postfix only, see {@link PostfixConverter#toPostfix(String)}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ConvertBenchmark {
+    @Param({"10", "100", "1000", "10000"})
+    public int tokens;
+    @Param({"0", "16"})
+    public int variables;
+    @Param({"0", "8"})
+    public int customOperations;
+
+    private PostfixConverter converter;
+    private String formula;
+
+    @Setup
+    public void setup() {
+        converter = new PostfixConverter(Formulas.registry(customOperations));
+        formula = Formulas.generate(tokens, variables, customOperations);
+        if (converter.toPostfix(formula) == null) {
+            throw new IllegalStateException("benchmark formula does not convert: " + formula);
+        }
+    }
+
+    @Benchmark
+    public PostfixExpression toPostfix() {
+        return converter.toPostfix(formula);
+    }
+}
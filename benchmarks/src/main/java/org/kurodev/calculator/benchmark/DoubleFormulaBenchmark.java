@@ -0,0 +1,57 @@
+package org.kurodev.calculator.benchmark;
+
+import org.kurodev.calculator.maths.CompiledExpression;
+import org.kurodev.calculator.maths.DoubleFormula;
+import org.kurodev.calculator.maths.FormulaParser;
+import org.kurodev.calculator.maths.NumericMode;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link NumericMode#DOUBLE} evaluation by the interpreter compared to {@link CompiledExpression#toDoubleFormula()},
+ * which generates bytecode for formulas without custom operations and interprets the others.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DoubleFormulaBenchmark {
+    @Param({"10", "100", "1000"})
+    public int tokens;
+    @Param({"4"})
+    public int variables;
+    @Param({"0", "8"})
+    public int customOperations;
+
+    private CompiledExpression expression;
+    private DoubleFormula formula;
+    private Map<String, BigDecimal> scope;
+    private double[] values;
+
+    @Setup
+    public void setup() {
+        final var parser = new FormulaParser(Formulas.registry(customOperations));
+        expression = parser.compile(Formulas.generate(tokens, variables, customOperations));
+        formula = expression.toDoubleFormula();
+        scope = Formulas.variables(variables);
+        values = expression.getVariableNames().stream().mapToDouble(name -> scope.get(name).doubleValue()).toArray();
+        if (formula.evaluate(values) != expression.evaluateDouble(scope)) {
+            throw new IllegalStateException("generated formula differs from the interpreter");
+        }
+    }
+
+    @Benchmark
+    public double interpreter() {
+        return expression.evaluateDouble(scope);
+    }
+
+    @Benchmark
+    public double doubleFormula() {
+        return formula.evaluate(values);
+    }
+}
@@ -0,0 +1,50 @@
+package org.kurodev.calculator.benchmark;
+
+import org.kurodev.calculator.maths.*;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Evaluation of an already compiled formula through {@link CompiledExpression} in the given {@link NumericMode},
+ * without any parsing.
+ *
+ * @see PostfixCalculatorBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EvaluateBenchmark {
+    @Param({"10", "100", "1000", "10000"})
+    public int tokens;
+    @Param({"0", "16"})
+    public int variables;
+    @Param({"0", "8"})
+    public int customOperations;
+    @Param({"BIG_DECIMAL", "DOUBLE"})
+    public NumericMode mode;
+
+    private CompiledExpression expression;
+    private Map<String, BigDecimal> scope;
+
+    @Setup
+    public void setup() {
+        final var parser = new FormulaParser(Formulas.registry(customOperations));
+        final var formula = Formulas.generate(tokens, variables, customOperations);
+        expression = parser.compile(formula);
+        scope = Formulas.variables(variables);
+        if (!expression.evaluate(scope, mode).isNumber()) {
+            throw new IllegalStateException("benchmark formula does not evaluate: " + formula);
+        }
+    }
+
+    @Benchmark
+    public Calculation compiledExpression() {
+        return expression.evaluate(scope, mode);
+    }
+}
@@ -0,0 +1,137 @@
+package org.kurodev.calculator.benchmark;
+
+import org.kurodev.calculator.maths.Calculation;
+import org.kurodev.calculator.maths.Operation;
+import org.kurodev.calculator.maths.OperatorRegistry;
+
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Generates reproducible formulas for the benchmarks.
+ * <p>A formula is a sequence of single digit numbers and variables joined by {@code +}, {@code -}, {@code *}
+ * and custom operations, with every fifth operand opening a parenthesised group.
+ * Multiplications are kept rare so that the numbers stay small, even for the largest formulas.</p>
+ */
+final class Formulas {
+    private static final long SEED = 0x5EED;
+    /**
+     * Custom operators are taken from this block, outside of ASCII, like most user defined symbols.
+     */
+    private static final char FIRST_CUSTOM_OPERATOR = '\u2200';
+
+    private Formulas() {
+    }
+
+    /**
+     * @param tokens           the minimum number of tokens, i.e. operands, operators and parenthesis.
+     * @param variables        how many distinct variables the formula uses, see {@link #variableName(int)}.
+     * @param customOperations how many custom operations the formula uses, see {@link #registry(int)}.
+     */
+    static String generate(int tokens, int variables, int customOperations) {
+        final var random = new Random(SEED);
+        final var formula = new StringBuilder(tokens * 3);
+        int count = 0;
+        int operands = 0;
+        int openGroups = 0;
+        while (true) {
+            if (operands % 5 == 4) {
+                formula.append("( ");
+                openGroups++;
+                count++;
+            }
+            if (variables > 0 && random.nextInt(3) == 0) {
+                formula.append(variableName(random.nextInt(variables)));
+            } else {
+                formula.append(1 + random.nextInt(9));
+            }
+            operands++;
+            count++;
+            if (openGroups > 0 && operands % 5 == 1) {
+                formula.append(" )");
+                openGroups--;
+                count++;
+            }
+            if (count >= tokens) {
+                break;
+            }
+            formula.append(' ').append(operator(random, customOperations)).append(' ');
+            count++;
+        }
+        for (; openGroups > 0; openGroups--) {
+            formula.append(" )");
+        }
+        return formula.toString();
+    }
+
+    private static char operator(Random random, int customOperations) {
+        final int pick = random.nextInt(10);
+        if (customOperations > 0 && pick < 3) {
+            return (char) (FIRST_CUSTOM_OPERATOR + random.nextInt(customOperations));
+        }
+        if (pick == 9) {
+            return '*';
+        }
+        return pick % 2 == 0 ? '+' : '-';
+    }
+
+    /**
+     * @return a name made of letters only: a, b, ..., z, ba, bb, ...
+     */
+    static String variableName(int index) {
+        final var name = new StringBuilder();
+        do {
+            name.insert(0, (char) ('a' + index % 26));
+            index /= 26;
+        } while (index > 0);
+        return name.toString();
+    }
+
+    /**
+     * @return values between 1 and 9 for the first {@code count} variable names.
+     */
+    static Map<String, BigDecimal> variables(int count) {
+        final var random = new Random(SEED);
+        final var variables = new HashMap<String, BigDecimal>();
+        for (int i = 0; i < count; i++) {
+            variables.put(variableName(i), BigDecimal.valueOf(1 + random.nextInt(9)));
+        }
+        return variables;
+    }
+
+    /**
+     * @return the default operations plus {@code customOperations} additions with distinct operators.
+     */
+    static OperatorRegistry registry(int customOperations) {
+        var registry = OperatorRegistry.defaults();
+        for (int i = 0; i < customOperations; i++) {
+            registry = registry.withOperation(new Addition((char) (FIRST_CUSTOM_OPERATOR + i)));
+        }
+        return registry;
+    }
+
+    private static final class Addition implements Operation {
+        private final char operator;
+
+        private Addition(char operator) {
+            this.operator = operator;
+        }
+
+        @Override
+        public Calculation conclude(Calculation a, Calculation b) {
+            return a.plus(b);
+        }
+
+        @Override
+        public double conclude(double a, double b) {
+            return a + b;
+        }
+
+        @Override
+        public char getOperator() {
+            return operator;
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package org.kurodev.calculator.benchmark;
+
+import org.kurodev.calculator.maths.*;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A single large expression evaluated on the calling thread compared to
+ * {@link CompiledExpression#evaluate(Map, ExpressionParallelism)} on the common pool.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ParallelEvaluationBenchmark {
+    @Param({"10000", "100000"})
+    public int tokens;
+    @Param({"256", "1024", "8192"})
+    public int minimumSubtreeSize;
+
+    private CompiledExpression expression;
+    private Map<String, BigDecimal> scope;
+    private ExpressionParallelism parallelism;
+
+    @Setup
+    public void setup() {
+        final var formula = Formulas.generate(tokens, 16, 0);
+        expression = new FormulaParser().compile(formula);
+        scope = Formulas.variables(16);
+        parallelism = ExpressionParallelism.commonPool().withMinimumSubtreeSize(minimumSubtreeSize);
+        if (!expression.evaluate(scope).equals(expression.evaluate(scope, parallelism))) {
+            throw new IllegalStateException("parallel evaluation differs: " + formula);
+        }
+    }
+
+    @Benchmark
+    public BigDecimal sequential() {
+        return expression.evaluate(scope).getResult();
+    }
+
+    @Benchmark
+    public BigDecimal parallel() {
+        return expression.evaluate(scope, parallelism).getResult();
+    }
+}
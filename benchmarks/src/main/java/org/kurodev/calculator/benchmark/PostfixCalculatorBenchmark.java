@@ -0,0 +1,48 @@
+package org.kurodev.calculator.benchmark;
+
+import org.kurodev.calculator.maths.*;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Evaluation of an already converted formula by {@link PostfixCalculator#evaluate(PostfixExpression, Map)},
+ * without any parsing. It always computes with {@link BigDecimal}, so unlike {@link EvaluateBenchmark}
+ * it has no {@link NumericMode} parameter.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PostfixCalculatorBenchmark {
+    @Param({"10", "100", "1000", "10000"})
+    public int tokens;
+    @Param({"0", "16"})
+    public int variables;
+    @Param({"0", "8"})
+    public int customOperations;
+
+    private final PostfixCalculator calculator = new PostfixCalculator();
+    private PostfixExpression postfix;
+    private Map<String, BigDecimal> scope;
+
+    @Setup
+    public void setup() {
+        final var parser = new FormulaParser(Formulas.registry(customOperations));
+        final var formula = Formulas.generate(tokens, variables, customOperations);
+        postfix = parser.compile(formula).getPostfix();
+        scope = Formulas.variables(variables);
+        if (!calculator.evaluate(postfix, scope).isNumber()) {
+            throw new IllegalStateException("benchmark formula does not evaluate: " + formula);
+        }
+    }
+
+    @Benchmark
+    public Calculation postfixCalculator() {
+        return calculator.evaluate(postfix, scope);
+    }
+}
@@ -0,0 +1,65 @@
+package org.kurodev.calculator.benchmark;
+
+import org.kurodev.calculator.maths.CompiledExpression;
+import org.kurodev.calculator.maths.FormulaParser;
+import org.kurodev.calculator.maths.NumericMode;
+import org.kurodev.calculator.maths.Powers;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link Powers} with integer and fractional exponents compared to {@link BigDecimal#pow(int, MathContext)}
+ * and to the same power in {@link NumericMode#DOUBLE}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PowerBenchmark {
+    @Param({"2", "100", "10000", "1000000"})
+    public int exponent;
+    @Param({"16", "100"})
+    public int precision;
+
+    private final BigDecimal base = new BigDecimal("1.0000001");
+    private MathContext mathContext;
+    private BigDecimal integral;
+    private BigDecimal fractional;
+    private CompiledExpression expression;
+    private Map<String, BigDecimal> scope;
+
+    @Setup
+    public void setup() {
+        mathContext = new MathContext(precision);
+        integral = BigDecimal.valueOf(exponent);
+        fractional = integral.add(new BigDecimal("0.5"));
+        expression = new FormulaParser().compile("x ^ n");
+        scope = Map.of("x", base, "n", fractional);
+    }
+
+    @Benchmark
+    public BigDecimal integerExponent() {
+        return Powers.pow(base, integral, mathContext);
+    }
+
+    @Benchmark
+    public BigDecimal jdkIntegerExponent() {
+        return base.pow(exponent, mathContext);
+    }
+
+    @Benchmark
+    public BigDecimal fractionalExponent() {
+        return Powers.pow(base, fractional, mathContext);
+    }
+
+    @Benchmark
+    public double doubleMode() {
+        return expression.evaluateDouble(scope);
+    }
+}
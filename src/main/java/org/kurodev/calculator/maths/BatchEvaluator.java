@@ -0,0 +1,167 @@
+package org.kurodev.calculator.maths;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Evaluates postfix tokens against columns of variable values, one row at a time.
+ * <p>The columns are bound to the variable slots once up front, so the row loop only copies the values of a row
+ * into an array indexed by slot and hands it to the {@link PostfixCalculator}, without ever touching a map.</p>
+ */
+final class BatchEvaluator {
+    private final PostfixToken[] tokens;
+    /**
+     * One column per variable slot.
+     */
+    private final double[][] doubleInputs;
+    private final BigDecimal[][] decimalInputs;
+    private final double[] doubleResults;
+    private final BigDecimal[] decimalResults;
+    private final Calculation[] errors;
+    private final MathContext mathContext;
+
+    private BatchEvaluator(PostfixToken[] tokens, double[][] doubleInputs, BigDecimal[][] decimalInputs, int rows,
+                           MathContext mathContext) {
+        this.tokens = tokens;
+        this.mathContext = mathContext;
+        this.doubleInputs = doubleInputs;
+        this.decimalInputs = decimalInputs;
+        this.doubleResults = doubleInputs == null ? null : new double[rows];
+        this.decimalResults = decimalInputs == null ? null : new BigDecimal[rows];
+        this.errors = new Calculation[rows];
+    }
+
+    /**
+     * @param variableNames the names of the variables, indexed by slot.
+     * @return the evaluator or {@code null} if a variable has no column.
+     */
+    static BatchEvaluator forDoubles(PostfixToken[] tokens, List<String> variableNames, Map<String, double[]> columns,
+                                     int rows) {
+        final var inputs = new double[variableNames.size()][];
+        for (int i = 0; i < inputs.length; i++) {
+            inputs[i] = columns.get(variableNames.get(i));
+            if (inputs[i] == null) return null;
+        }
+        return new BatchEvaluator(tokens, inputs, null, rows, null);
+    }
+
+    /**
+     * @param variableNames the names of the variables, indexed by slot.
+     * @param mathContext   the precision of every operation, {@code null} for exact results.
+     * @return the evaluator or {@code null} if a variable has no column.
+     */
+    static BatchEvaluator forBigDecimals(PostfixToken[] tokens, List<String> variableNames,
+                                         Map<String, BigDecimal[]> columns, int rows, MathContext mathContext) {
+        final var inputs = new BigDecimal[variableNames.size()][];
+        for (int i = 0; i < inputs.length; i++) {
+            inputs[i] = columns.get(variableNames.get(i));
+            if (inputs[i] == null) return null;
+        }
+        return new BatchEvaluator(tokens, null, inputs, rows, mathContext);
+    }
+
+    /**
+     * @return the number of rows shared by all columns.
+     * @throws IllegalArgumentException if the columns differ in length.
+     */
+    static int rowCount(Map<String, ?> columns) {
+        int rows = -1;
+        for (var entry : columns.entrySet()) {
+            final var column = entry.getValue();
+            final int length = column instanceof double[] doubles ? doubles.length : ((Object[]) column).length;
+            if (rows >= 0 && rows != length) {
+                throw new IllegalArgumentException("column '" + entry.getKey() + "' has " + length + " rows instead of " + rows);
+            }
+            rows = length;
+        }
+        return Math.max(rows, 0);
+    }
+
+    /**
+     * Evaluates the rows from {@code from} (inclusive) to {@code to} (exclusive).
+     * Different ranges can be evaluated concurrently.
+     */
+    void evaluate(int from, int to) {
+        if (doubleInputs != null) {
+            evaluateDoubles(from, to);
+        } else {
+            evaluateBigDecimals(from, to);
+        }
+    }
+
+    /**
+     * Evaluates all rows, splitting them across the pool of the given parallelism.
+     */
+    void evaluate(int rows, BatchParallelism parallelism) {
+        final int chunk = parallelism.getMinimumChunkSize();
+        if (rows <= chunk) {
+            evaluate(0, rows);
+        } else {
+            parallelism.getPool().invoke(new RowRange(0, rows, chunk));
+        }
+    }
+
+    private void evaluateDoubles(int from, int to) {
+        final double[] values = new double[doubleInputs.length];
+        for (int row = from; row < to; row++) {
+            for (int slot = 0; slot < values.length; slot++) {
+                values[slot] = doubleInputs[slot][row];
+            }
+            final double result = PostfixCalculator.evaluateDouble(tokens, values);
+            if (Double.isNaN(result) || Double.isInfinite(result)) {
+                errors[row] = FormulaParser.ARITHMETIC_ERROR;
+            } else {
+                doubleResults[row] = result;
+            }
+        }
+    }
+
+    private void evaluateBigDecimals(int from, int to) {
+        final BigDecimal[] values = new BigDecimal[decimalInputs.length];
+        for (int row = from; row < to; row++) {
+            for (int slot = 0; slot < values.length; slot++) {
+                values[slot] = decimalInputs[slot][row];
+            }
+            try {
+                var result = PostfixCalculator.evaluate(tokens, values, mathContext);
+                if (result.isError()) {
+                    errors[row] = result;
+                } else {
+                    decimalResults[row] = result.getResult();
+                }
+            } catch (ArithmeticException e) {
+                errors[row] = FormulaParser.ARITHMETIC_ERROR;
+            }
+        }
+    }
+
+    BatchResult toResult() {
+        return new BatchResult(doubleResults, decimalResults, errors);
+    }
+
+    private final class RowRange extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final int from;
+        private final int to;
+        private final int chunk;
+
+        private RowRange(int from, int to, int chunk) {
+            this.from = from;
+            this.to = to;
+            this.chunk = chunk;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= chunk) {
+                evaluate(from, to);
+            } else {
+                final int middle = (from + to) >>> 1;
+                invokeAll(new RowRange(from, middle, chunk), new RowRange(middle, to, chunk));
+            }
+        }
+    }
+}
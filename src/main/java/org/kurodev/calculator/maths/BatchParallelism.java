@@ -0,0 +1,46 @@
+package org.kurodev.calculator.maths;
+
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Describes how a batch evaluation is split across threads.
+ * <p>The rows are recursively halved until a range holds at most {@link #getMinimumChunkSize()} rows,
+ * each range is then evaluated by one task of the pool. Every row writes only its own result,
+ * so the output order is always the input order, no matter which thread evaluated a row.</p>
+ * <p>Parallel evaluation only reads the {@link CompiledExpression} and the columns.
+ * The variables and operations of the {@link FormulaParser} are never touched while it runs.</p>
+ *
+ * @see CompiledExpression#evaluateBatch(java.util.Map, BatchParallelism)
+ */
+public final class BatchParallelism extends Parallelism {
+    public static final int DEFAULT_MINIMUM_CHUNK_SIZE = 4096;
+
+    private BatchParallelism(ForkJoinPool pool, int minimumChunkSize) {
+        super(pool, minimumChunkSize, "minimumChunkSize");
+    }
+
+    /**
+     * @return parallelism on the {@link ForkJoinPool#commonPool() common pool}.
+     */
+    public static BatchParallelism commonPool() {
+        return of(ForkJoinPool.commonPool());
+    }
+
+    public static BatchParallelism of(ForkJoinPool pool) {
+        return new BatchParallelism(pool, DEFAULT_MINIMUM_CHUNK_SIZE);
+    }
+
+    /**
+     * Batches with fewer rows than this are evaluated on the calling thread.
+     *
+     * @param minimumChunkSize the smallest number of rows worth handing to a separate task.
+     * @return a copy of this parallelism with the given chunk size.
+     */
+    public BatchParallelism withMinimumChunkSize(int minimumChunkSize) {
+        return new BatchParallelism(getPool(), minimumChunkSize);
+    }
+
+    public int getMinimumChunkSize() {
+        return getThreshold();
+    }
+}
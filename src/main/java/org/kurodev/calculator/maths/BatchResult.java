@@ -0,0 +1,99 @@
+package org.kurodev.calculator.maths;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+
+/**
+ * The result column of evaluating one formula against many rows of variable values.
+ * <p>Rows that could not be calculated do not throw, they carry one of the error instances of
+ * {@link FormulaParser} instead, e.g. {@link FormulaParser#ARITHMETIC_ERROR} for a division by zero.</p>
+ *
+ * @see CompiledExpression#evaluateBatch(java.util.Map)
+ * @see CompiledExpression#evaluateBigDecimalBatch(java.util.Map)
+ */
+public final class BatchResult {
+    private final double[] doubles;
+    private final BigDecimal[] decimals;
+    private final Calculation[] errors;
+    private final int errorCount;
+
+    BatchResult(double[] doubles, BigDecimal[] decimals, Calculation[] errors) {
+        this.doubles = doubles;
+        this.decimals = decimals;
+        this.errors = errors;
+        int count = 0;
+        for (Calculation error : errors) {
+            if (error != null) count++;
+        }
+        this.errorCount = count;
+    }
+
+    /**
+     * @return a result in which every row failed with the same error.
+     */
+    static BatchResult failed(int rows, Calculation error) {
+        final var errors = new Calculation[rows];
+        Arrays.fill(errors, error);
+        return new BatchResult(null, null, errors);
+    }
+
+    /**
+     * @return the number of rows.
+     */
+    public int size() {
+        return errors.length;
+    }
+
+    public int getErrorCount() {
+        return errorCount;
+    }
+
+    public boolean isError(int row) {
+        return errors[row] != null;
+    }
+
+    /**
+     * @return the error of the given row or {@code null} if it was calculated successfully.
+     */
+    public Calculation getError(int row) {
+        return errors[row];
+    }
+
+    /**
+     * @return the result of the given row, {@link Double#NaN} if the row failed.
+     */
+    public double getDouble(int row) {
+        if (errors[row] != null) {
+            return Double.NaN;
+        }
+        return doubles != null ? doubles[row] : decimals[row].doubleValue();
+    }
+
+    /**
+     * @return the result of the given row, {@code null} if the row failed.
+     */
+    public BigDecimal getBigDecimal(int row) {
+        if (errors[row] != null) {
+            return null;
+        }
+        return decimals != null ? decimals[row] : BigDecimal.valueOf(doubles[row]);
+    }
+
+    /**
+     * @return the result of the given row as a calculation, or its error instance if the row failed.
+     */
+    public Calculation get(int row) {
+        if (errors[row] != null) {
+            return errors[row];
+        }
+        return new Calculation(getBigDecimal(row));
+    }
+
+    @Override
+    public String toString() {
+        return "BatchResult{" +
+                "size=" + size() +
+                ", errorCount=" + errorCount +
+                '}';
+    }
+}
@@ -3,12 +3,17 @@ package org.kurodev.calculator.maths;
 import org.kurodev.calculator.maths.deco.*;
 
 import java.math.BigDecimal;
+import java.math.MathContext;
 import java.math.RoundingMode;
 import java.util.Objects;
 
 public strictfp class Calculation {
     protected final BigDecimal value;
     protected final RoundingMode roundingMode;
+    /**
+     * Precision and rounding of every operation, {@code null} for exact results.
+     */
+    protected final MathContext mathContext;
 
     public Calculation() {
         this(0.0d);
@@ -19,8 +24,18 @@ public strictfp class Calculation {
     }
 
     public Calculation(BigDecimal value, RoundingMode roundingMode) {
+        this(value, roundingMode, null);
+    }
+
+    /**
+     * @param mathContext the precision and rounding of every operation on this calculation and of every operation
+     *                    on their results in turn. {@code null} or a precision of 0 for exact results, except
+     *                    for divisions, which round to the scale of the dividend with the given rounding mode.
+     */
+    public Calculation(BigDecimal value, RoundingMode roundingMode, MathContext mathContext) {
         this.value = value;
         this.roundingMode = roundingMode;
+        this.mathContext = mathContext == null || mathContext.getPrecision() == 0 ? null : mathContext;
     }
 
     public Calculation(BigDecimal value) {
@@ -47,6 +62,13 @@ public strictfp class Calculation {
         return roundingMode;
     }
 
+    /**
+     * @return the precision and rounding of operations on this calculation, {@code null} if they are exact.
+     */
+    public MathContext getMathContext() {
+        return mathContext;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
@@ -65,11 +87,14 @@ public strictfp class Calculation {
     }
 
     public Calculation plus(double other) {
-        return new PlusNumber(BigDecimal.valueOf(other), this);
+        return plus(BigDecimal.valueOf(other));
     }
 
+    /**
+     * @return the sum, or {@code other} itself if it is an {@link #isError() error}.
+     */
     public final Calculation plus(Calculation other) {
-        return plus(other.getResult());
+        return other.isError() ? other : plus(other.getResult());
     }
 
     public Calculation minus(BigDecimal other) {
@@ -77,11 +102,14 @@ public strictfp class Calculation {
     }
 
     public Calculation minus(double other) {
-        return new MinusNumber(BigDecimal.valueOf(other), this);
+        return minus(BigDecimal.valueOf(other));
     }
 
+    /**
+     * @return the difference, or {@code other} itself if it is an {@link #isError() error}.
+     */
     public final Calculation minus(Calculation other) {
-        return minus(other.getResult());
+        return other.isError() ? other : minus(other.getResult());
     }
 
     public BigDecimal getResult() {
@@ -90,6 +118,36 @@ public strictfp class Calculation {
         return BigDecimal.valueOf(0L);
     }
 
+    /**
+     * Unlike {@link #getResult()} this never throws, neither for {@link #isError() errors}
+     * nor for operations that fail when their result is computed, e.g. a division by zero.
+     *
+     * @param defaultValue the value to return if there is no result.
+     * @return the result or the given default value if there is none.
+     */
+    public final BigDecimal getResultOrDefault(BigDecimal defaultValue) {
+        Calculation root = this;
+        while (root.getParent() != null) {
+            root = root.getParent();
+        }
+        if (root.isError()) {
+            //an operation on an error has no result either
+            return defaultValue;
+        }
+        try {
+            return getResult();
+        } catch (ArithmeticException e) {
+            return defaultValue;
+        }
+    }
+
+    /**
+     * @return the calculation this one applies an operation to, {@code null} if it is a plain value.
+     */
+    protected Calculation getParent() {
+        return null;
+    }
+
     public final boolean isNumber() {
         return value != null && !(this instanceof NumberErrorInstance);
     }
@@ -103,8 +161,11 @@ public strictfp class Calculation {
         return getResult().toPlainString();
     }
 
+    /**
+     * @return the product, or {@code b} itself if it is an {@link #isError() error}.
+     */
     public Calculation multiplyWith(Calculation b) {
-        return multiplyWith(b.getResult());
+        return b.isError() ? b : multiplyWith(b.getResult());
     }
 
     public Calculation multiplyWith(BigDecimal b) {
@@ -112,11 +173,14 @@ public strictfp class Calculation {
     }
 
     public Calculation multiplyWith(double b) {
-        return new MultiplyNumber(BigDecimal.valueOf(b), this);
+        return multiplyWith(BigDecimal.valueOf(b));
     }
 
+    /**
+     * @return the quotient, or {@code b} itself if it is an {@link #isError() error}.
+     */
     public Calculation divideBy(Calculation b) {
-        return divideBy(b.getResult());
+        return b.isError() ? b : divideBy(b.getResult());
     }
 
     public Calculation divideBy(BigDecimal b) {
@@ -124,23 +188,33 @@ public strictfp class Calculation {
     }
 
     public Calculation divideBy(double b) {
-        return new DivisionNumber(BigDecimal.valueOf(b), this);
+        return divideBy(BigDecimal.valueOf(b));
     }
 
+    /**
+     * @return the power, or {@code b} itself if it is an {@link #isError() error}.
+     */
     public Calculation pow(Calculation b) {
-        return pow(b.getResult());
+        return b.isError() ? b : pow(b.getResult());
     }
 
     public Calculation pow(int b) {
-        return new PowNumber(BigDecimal.valueOf(b), this);
+        return pow(BigDecimal.valueOf(b));
     }
 
+    /**
+     * @param b any exponent, fractional exponents require a non-negative base.
+     * @see Powers#pow(BigDecimal, BigDecimal, MathContext)
+     */
     public Calculation pow(BigDecimal b) {
-        return pow(b.intValue());
+        return new PowNumber(b, this);
     }
 
+    /**
+     * @see Powers#sqrt(BigDecimal, MathContext)
+     */
     public Calculation sqrt() {
-        return pow(2);
+        return new SqrtNumber(this);
     }
 
 }
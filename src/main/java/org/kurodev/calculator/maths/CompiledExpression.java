@@ -0,0 +1,527 @@
+package org.kurodev.calculator.maths;
+
+import java.lang.invoke.MethodHandle;
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.math.RoundingMode;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A formula that has been parsed once and can be evaluated any number of times.
+ * <p>All operands are pre-parsed and all operators are bound to their {@link Operation},
+ * so evaluating a compiled expression never touches the formula text again.
+ * Variables are looked up once per evaluation and then read by their slot, see {@link #evaluate(BigDecimal...)}.
+ * Constant parts of the formula are calculated once while compiling
+ * and repeated parts only once per evaluation, see {@link PostfixOptimizer}.</p>
+ * <p>Expressions start out interpreted. Once an expression has been evaluated often enough,
+ * it is promoted to a tree of method handles that the JIT can compile into a single method,
+ * see {@link #getPromotionThreshold()}.</p>
+ * <p>Instances can be shared between threads, the formula they evaluate never changes.</p>
+ *
+ * @see FormulaParser#compile(String)
+ */
+public final class CompiledExpression {
+    /**
+     * Number of evaluations after which an expression is promoted, unless configured otherwise.
+     *
+     * @see FormulaParser#setPromotionThreshold(int)
+     */
+    public static final int DEFAULT_PROMOTION_THRESHOLD = 1000;
+    static final CompiledExpression INVALID = new CompiledExpression(null);
+
+    private final PostfixExpression postfix;
+    /**
+     * The optimized tokens that are actually evaluated, per {@link NumericMode}.
+     */
+    private final PostfixToken[] program;
+    /**
+     * Built on the first evaluation with {@link NumericMode#DOUBLE}, many expressions are only ever evaluated exactly.
+     */
+    private volatile PostfixToken[] doubleProgram;
+    private final int deduplicatedNodes;
+    private volatile DoubleFormula doubleFormula;
+    private final Set<String> variableNames;
+    /**
+     * {@link #variableNames} indexed by the slots of their tokens, which is the order all tiers take their values in.
+     */
+    private final List<String> variableOrder;
+    private final boolean plainOperand;
+    private final int promotionThreshold;
+    private final MathContext mathContext;
+    /**
+     * Counts the evaluations until the promotion. Updates may get lost between threads,
+     * which only delays the promotion a little.
+     */
+    private int evaluations;
+    private volatile MethodHandle decimalTier;
+    private volatile MethodHandle doubleTier;
+    /**
+     * {@code false} if an operation of this expression is not {@link Operation#isThreadSafe() thread-safe}.
+     */
+    private final boolean parallelizable;
+    /**
+     * {@code false} if an operation of this expression is not {@link Operation#isPure() pure}.
+     * The method handle tier falls back to the interpreter when an operation fails,
+     * which would conclude an operation with side effects twice in one evaluation.
+     */
+    private final boolean promotable;
+    private volatile SubtreeEvaluator subtreeEvaluator;
+
+    CompiledExpression(PostfixExpression postfix) {
+        this(postfix, DEFAULT_PROMOTION_THRESHOLD, null);
+    }
+
+    /**
+     * @param promotionThreshold see {@link #getPromotionThreshold()}.
+     * @param mathContext        see {@link #getMathContext()}.
+     */
+    CompiledExpression(PostfixExpression postfix, int promotionThreshold, MathContext mathContext) {
+        this.postfix = postfix;
+        this.promotionThreshold = promotionThreshold;
+        this.mathContext = mathContext == null || mathContext.getPrecision() == 0 ? null : mathContext;
+        if (postfix == null) {
+            this.plainOperand = false;
+            this.variableNames = Set.of();
+            this.variableOrder = List.of();
+            this.program = null;
+            this.deduplicatedNodes = 0;
+            this.parallelizable = false;
+            this.promotable = false;
+        } else {
+            //decided on the formula as written, folding must not change how the result is handed out
+            this.plainOperand = postfix.size() == 1;
+            final var folded = PostfixOptimizer.fold(postfix.tokens, NumericMode.BIG_DECIMAL, this.mathContext);
+            this.program = PostfixOptimizer.shareCommonSubexpressions(folded);
+            this.deduplicatedNodes = PostfixOptimizer.countDeduplicated(folded, program);
+            this.variableOrder = postfix.getVariableNames();
+            this.variableNames = Collections.unmodifiableSet(new LinkedHashSet<>(variableOrder));
+            this.parallelizable = isThreadSafe(postfix.tokens);
+            this.promotable = isPure(postfix.tokens);
+        }
+    }
+
+    private static boolean isPure(PostfixToken[] tokens) {
+        for (PostfixToken token : tokens) {
+            if (token.kind == PostfixToken.Kind.OPERATION && !token.operation.isPure()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isThreadSafe(PostfixToken[] tokens) {
+        for (PostfixToken token : tokens) {
+            if (token.kind == PostfixToken.Kind.OPERATION && !token.operation.isThreadSafe()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return {@code false} if the formula was incomplete or contained unsupported expressions.
+     */
+    public boolean isValid() {
+        return postfix != null;
+    }
+
+    /**
+     * @return the names of all variables this expression needs a value for, in order of appearance.
+     */
+    public Set<String> getVariableNames() {
+        return variableNames;
+    }
+
+    /**
+     * @param variables values for the variables used in this expression, the map is only read.
+     * @return The results can be as follows:
+     * <p>{@link FormulaParser#INVALID_EXPRESSION} if the formula is incomplete or contains unsupported expressions</p>
+     * <p>{@link FormulaParser#UNKNOWN_VARIABLE} if a variable has no value</p>
+     * <p>the normal result of the calculation</p>
+     */
+    public Calculation evaluate(Map<String, BigDecimal> variables) {
+        return evaluate(bind(variables), NumericMode.BIG_DECIMAL);
+    }
+
+    public Calculation evaluate() {
+        return evaluate(Map.of());
+    }
+
+    /**
+     * Evaluates without looking up any variable by name, which is the fastest way to evaluate
+     * an expression with different values over and over.
+     *
+     * @param values one value per variable, in the order of {@link #getVariableNames()}. The array is only read.
+     * @return the same results as {@link #evaluate(Map)}.
+     * @throws IllegalArgumentException if the number of values differs from the number of variables.
+     */
+    public Calculation evaluate(BigDecimal... values) {
+        if (postfix != null && values.length != variableOrder.size()) {
+            throw new IllegalArgumentException("expected " + variableOrder.size() + " values, got " + values.length);
+        }
+        return evaluate(values, NumericMode.BIG_DECIMAL);
+    }
+
+    /**
+     * @param variables values for the variables used in this expression, the map is only read.
+     * @param mode      the number type to evaluate with.
+     * @return the same results as {@link #evaluate(Map)}, in {@link NumericMode#DOUBLE} additionally
+     * {@link FormulaParser#ARITHMETIC_ERROR} if the result is infinite or not a number.
+     */
+    public Calculation evaluate(Map<String, BigDecimal> variables, NumericMode mode) {
+        return evaluate(bind(variables), mode);
+    }
+
+    /**
+     * Parallel version of {@link #evaluate(Map)} for very large expressions, the result is identical.
+     * <p>Expressions smaller than the {@link ExpressionParallelism#getMinimumSubtreeSize() minimum subtree size}
+     * and expressions with an operation that is not {@link Operation#isThreadSafe() thread-safe}
+     * are evaluated on the calling thread.</p>
+     *
+     * @param variables   values for the variables used in this expression, the map is only read.
+     * @param parallelism the pool to split the expression across, {@code null} to evaluate on the calling thread.
+     */
+    public Calculation evaluate(Map<String, BigDecimal> variables, ExpressionParallelism parallelism) {
+        if (parallelism == null || !parallelizable || program.length < parallelism.getMinimumSubtreeSize()) {
+            return evaluate(variables);
+        }
+        return handOut(subtreeEvaluator().evaluate(bind(variables), parallelism));
+    }
+
+    /**
+     * The evaluator works on the folded tokens without shared subexpressions,
+     * a subexpression that is shared between two tasks would have to be synchronized.
+     */
+    private SubtreeEvaluator subtreeEvaluator() {
+        var evaluator = subtreeEvaluator;
+        if (evaluator == null) {
+            evaluator = subtreeEvaluator = new SubtreeEvaluator(
+                    PostfixOptimizer.fold(postfix.tokens, NumericMode.BIG_DECIMAL, mathContext), mathContext);
+        }
+        return evaluator;
+    }
+
+    /**
+     * @return the value of every variable indexed by slot, {@code null} for variables without a value.
+     */
+    BigDecimal[] bind(Map<String, BigDecimal> variables) {
+        return PostfixCalculator.bind(variableOrder, variables);
+    }
+
+    /**
+     * @param values the values of the variables indexed by slot, as returned by {@link #bind(Map)}.
+     * @see #evaluate(Map, NumericMode)
+     */
+    Calculation evaluate(BigDecimal[] values, NumericMode mode) {
+        if (postfix == null) {
+            return FormulaParser.INVALID_EXPRESSION;
+        }
+        if (mode == NumericMode.BIG_DECIMAL) {
+            return evaluateBigDecimal(values);
+        }
+        final var doubles = toDoubles(values);
+        if (doubles == null) {
+            return FormulaParser.UNKNOWN_VARIABLE;
+        }
+        final double result = evaluateDouble(doubles);
+        if (Double.isNaN(result) || Double.isInfinite(result)) {
+            return FormulaParser.ARITHMETIC_ERROR;
+        }
+        return new Calculation(result);
+    }
+
+    private Calculation evaluateBigDecimal(BigDecimal[] values) {
+        var result = evaluatePromoted(values);
+        if (result == null) {
+            result = PostfixCalculator.evaluate(program, values, mathContext);
+        }
+        return handOut(result);
+    }
+
+    private Calculation handOut(Calculation result) {
+        if (plainOperand && result.isNumber() && Double.isFinite(result.getResult().doubleValue())) {
+            //plain numbers have always been handed out as double based calculations
+            return new Calculation(result.getResult().doubleValue());
+        }
+        return result;
+    }
+
+    /**
+     * Evaluates this expression with {@link NumericMode#DOUBLE} without allocating anything per operation.
+     *
+     * @param variables values for the variables used in this expression, the map is only read.
+     * @return the result, {@link Double#NaN} if the expression is not {@link #isValid() valid}
+     * or a variable has no value.
+     */
+    public double evaluateDouble(Map<String, BigDecimal> variables) {
+        if (postfix == null) {
+            return Double.NaN;
+        }
+        final var values = toDoubles(bind(variables));
+        return values == null ? Double.NaN : evaluateDouble(values);
+    }
+
+    /**
+     * @return the values as doubles, {@code null} if one of them is missing.
+     */
+    private static double[] toDoubles(BigDecimal[] values) {
+        final double[] doubles = new double[values.length];
+        for (int i = 0; i < values.length; i++) {
+            if (values[i] == null) {
+                return null;
+            }
+            doubles[i] = values[i].doubleValue();
+        }
+        return doubles;
+    }
+
+    /**
+     * @param values a value for every variable of this expression, indexed by slot.
+     */
+    private double evaluateDouble(double[] values) {
+        final var tier = doubleTier();
+        if (tier == null) {
+            return PostfixCalculator.evaluateDouble(doubleProgram(), values);
+        }
+        try {
+            return (double) tier.invokeExact(values);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Evaluates with the method handle tier, if this expression has been promoted.
+     * <p>The tier computes the result right away, while the interpreter hands out a calculation
+     * that is only computed when its result is read. Whenever that makes a difference,
+     * i.e. an operation fails, the interpreter has to take over.</p>
+     *
+     * @return the result or {@code null} if the interpreter has to evaluate this expression.
+     */
+    private Calculation evaluatePromoted(BigDecimal[] values) {
+        final var tier = decimalTier();
+        if (tier == null) {
+            return null;
+        }
+        for (BigDecimal value : values) {
+            if (value == null) {
+                return FormulaParser.UNKNOWN_VARIABLE;
+            }
+        }
+        try {
+            return new Calculation((BigDecimal) tier.invokeExact(values), RoundingMode.HALF_UP, mathContext);
+        } catch (ArithmeticException | MethodHandleTree.ConclusionFailedException e) {
+            return null;
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Doubles are folded and shared separately, a constant part may fold to a different value in each mode.
+     */
+    private PostfixToken[] doubleProgram() {
+        var tokens = doubleProgram;
+        if (tokens == null) {
+            tokens = doubleProgram = PostfixOptimizer.shareCommonSubexpressions(
+                    PostfixOptimizer.fold(postfix.tokens, NumericMode.DOUBLE, null));
+        }
+        return tokens;
+    }
+
+    private MethodHandle decimalTier() {
+        var tier = decimalTier;
+        if (tier == null && isPromotionDue(program)) {
+            tier = decimalTier = MethodHandleTree.forBigDecimals(program, mathContext);
+        }
+        return tier;
+    }
+
+    private MethodHandle doubleTier() {
+        var tier = doubleTier;
+        if (tier == null && isPromotionDue(doubleProgram())) {
+            tier = doubleTier = MethodHandleTree.forDoubles(doubleProgram());
+        }
+        return tier;
+    }
+
+    private boolean isPromotionDue(PostfixToken[] tokens) {
+        if (!promotable || promotionThreshold < 0 || tokens.length > MethodHandleTree.MAX_TOKENS) {
+            return false;
+        }
+        if (evaluations < promotionThreshold) {
+            evaluations++;
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Expressions are interpreted until they have been evaluated this many times,
+     * then they are promoted to a tree of method handles. Building the tree takes some time once,
+     * afterwards the JIT can compile the whole expression into a single method.
+     * <p>Expressions with more than a few hundred operands and operators are never promoted,
+     * they are evaluated faster by the interpreter. Neither are expressions with an operation that is not
+     * {@link Operation#isPure() pure}, the interpreter concludes every operation exactly once per evaluation.</p>
+     *
+     * @return the number of evaluations, 0 to promote right away and a negative number to never promote.
+     */
+    public int getPromotionThreshold() {
+        return promotionThreshold;
+    }
+
+    /**
+     * @return the precision and rounding of every operation in {@link NumericMode#BIG_DECIMAL},
+     * {@code null} if the results are exact.
+     * @see FormulaParser#setMathContext(MathContext)
+     */
+    public MathContext getMathContext() {
+        return mathContext;
+    }
+
+    /**
+     * @return {@code true} if at least one {@link NumericMode} is evaluated with method handles.
+     */
+    public boolean isPromoted() {
+        return decimalTier != null || doubleTier != null;
+    }
+
+    /**
+     * Evaluates this expression with {@link NumericMode#DOUBLE} once per row of the given columns.
+     * <p>Row {@code i} uses the value at index {@code i} of every column.
+     * Rows that fail, e.g. because of a division by zero, are reported in the result instead of throwing.</p>
+     *
+     * @param columns one column of values per variable name, all of the same length. The arrays are only read.
+     * @return one result per row. Every row is {@link FormulaParser#INVALID_EXPRESSION} if this expression
+     * is not {@link #isValid() valid} and {@link FormulaParser#UNKNOWN_VARIABLE} if a variable has no column.
+     * @throws IllegalArgumentException if the columns differ in length.
+     */
+    public BatchResult evaluateBatch(Map<String, double[]> columns) {
+        return evaluateBatch(columns, null);
+    }
+
+    /**
+     * Parallel version of {@link #evaluateBatch(Map)}, the result is identical.
+     * Expressions with an operation that is not {@link Operation#isThreadSafe() thread-safe}
+     * are evaluated on the calling thread.
+     *
+     * @param parallelism the pool to split the rows across, {@code null} to evaluate on the calling thread.
+     */
+    public BatchResult evaluateBatch(Map<String, double[]> columns, BatchParallelism parallelism) {
+        final int rows = BatchEvaluator.rowCount(columns);
+        if (postfix == null) {
+            return BatchResult.failed(rows, FormulaParser.INVALID_EXPRESSION);
+        }
+        final var evaluator = BatchEvaluator.forDoubles(doubleProgram(), variableOrder, columns, rows);
+        if (evaluator == null) {
+            return BatchResult.failed(rows, FormulaParser.UNKNOWN_VARIABLE);
+        }
+        return evaluate(evaluator, rows, parallelism);
+    }
+
+    /**
+     * Evaluates this expression with {@link NumericMode#BIG_DECIMAL} once per row of the given columns.
+     * <p>Rows that fail are reported in the result instead of throwing, a {@code null} value is
+     * reported as {@link FormulaParser#UNKNOWN_VARIABLE} and an {@link ArithmeticException}
+     * as {@link FormulaParser#ARITHMETIC_ERROR}.</p>
+     *
+     * @see #evaluateBatch(Map)
+     */
+    public BatchResult evaluateBigDecimalBatch(Map<String, BigDecimal[]> columns) {
+        return evaluateBigDecimalBatch(columns, null);
+    }
+
+    /**
+     * Parallel version of {@link #evaluateBigDecimalBatch(Map)}, the result is identical.
+     * Expressions with an operation that is not {@link Operation#isThreadSafe() thread-safe}
+     * are evaluated on the calling thread.
+     *
+     * @param parallelism the pool to split the rows across, {@code null} to evaluate on the calling thread.
+     */
+    public BatchResult evaluateBigDecimalBatch(Map<String, BigDecimal[]> columns, BatchParallelism parallelism) {
+        final int rows = BatchEvaluator.rowCount(columns);
+        if (postfix == null) {
+            return BatchResult.failed(rows, FormulaParser.INVALID_EXPRESSION);
+        }
+        final var evaluator = BatchEvaluator.forBigDecimals(program, variableOrder, columns, rows, mathContext);
+        if (evaluator == null) {
+            return BatchResult.failed(rows, FormulaParser.UNKNOWN_VARIABLE);
+        }
+        return evaluate(evaluator, rows, parallelism);
+    }
+
+    /**
+     * Turns this expression into a {@link DoubleFormula} that evaluates with {@link NumericMode#DOUBLE}.
+     * <p>If the expression only uses {@link DefaultOperations}, it is translated to bytecode of its own,
+     * which the JIT compiles like hand written arithmetic. This pays off for formulas that are evaluated
+     * very often, the first call takes much longer than {@link #evaluateDouble(Map)}.
+     * Expressions with other operations are interpreted, like {@link #evaluateDouble(Map)}.</p>
+     *
+     * @return the formula, created once and then reused. Its results are identical to {@link #evaluateDouble(Map)}.
+     * @throws IllegalStateException if this expression is not {@link #isValid() valid}.
+     */
+    public DoubleFormula toDoubleFormula() {
+        var formula = this.doubleFormula;
+        if (formula == null) {
+            if (postfix == null) {
+                throw new IllegalStateException("invalid expression");
+            }
+            formula = DoubleFormulaGenerator.generate(doubleProgram(), variableOrder.size());
+            if (formula == null) {
+                formula = new InterpretedDoubleFormula(doubleProgram());
+            }
+            this.doubleFormula = formula;
+        }
+        return formula;
+    }
+
+    private BatchResult evaluate(BatchEvaluator evaluator, int rows, BatchParallelism parallelism) {
+        if (parallelism == null || !parallelizable) {
+            evaluator.evaluate(0, rows);
+        } else {
+            evaluator.evaluate(rows, parallelism);
+        }
+        return evaluator.toResult();
+    }
+
+    /**
+     * @return the postfix form of this expression as it was parsed, before any optimization.
+     * {@code null} if it is not {@link #isValid() valid}.
+     */
+    public PostfixExpression getPostfix() {
+        return postfix;
+    }
+
+    /**
+     * @return how many operands and operators are not evaluated because they are part of a subexpression
+     * that occurs more than once and is only evaluated once, e.g. 3 for the second {@code (a*b+c)} in
+     * {@code (a*b+c) / (a*b+c)}.
+     */
+    public int getDeduplicatedNodeCount() {
+        return deduplicatedNodes;
+    }
+
+    /**
+     * @return the postfix form that is actually evaluated in {@link NumericMode#BIG_DECIMAL},
+     * with constant parts folded, identities removed and common subexpressions shared.
+     * {@code null} if it is not {@link #isValid() valid}.
+     */
+    public PostfixExpression getOptimizedPostfix() {
+        return postfix == null ? null : new PostfixExpression(program, variableOrder);
+    }
+
+    @Override
+    public String toString() {
+        return "CompiledExpression{" +
+                "postfix=" + postfix +
+                '}';
+    }
+}
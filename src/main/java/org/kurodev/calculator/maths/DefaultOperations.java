@@ -10,30 +10,60 @@ public enum DefaultOperations implements Operation {
         public Calculation conclude(Calculation a, Calculation b) {
             return a.plus(b);
         }
+
+        @Override
+        public double conclude(double a, double b) {
+            return a + b;
+        }
     },
     SUBTRACT('-') {
         @Override
         public Calculation conclude(Calculation a, Calculation b) {
             return a.minus(b);
         }
+
+        @Override
+        public double conclude(double a, double b) {
+            return a - b;
+        }
     },
     MULTIPLY('*') {
         @Override
         public Calculation conclude(Calculation a, Calculation b) {
             return a.multiplyWith(b);
         }
+
+        @Override
+        public double conclude(double a, double b) {
+            return a * b;
+        }
     },
     DIVIDE('/') {
         @Override
         public Calculation conclude(Calculation a, Calculation b) {
             return a.divideBy(b);
         }
+
+        @Override
+        public double conclude(double a, double b) {
+            return a / b;
+        }
     },
     SQUARE('^') {
         @Override
         public Calculation conclude(Calculation a, Calculation b) {
             return a.pow(b);
         }
+
+        @Override
+        public double conclude(double a, double b) {
+            return Math.pow(a, b);
+        }
+
+        @Override
+        public Associativity getAssociativity() {
+            return Associativity.RIGHT;
+        }
     };
 
     private final char chara;
@@ -53,4 +83,14 @@ public enum DefaultOperations implements Operation {
     public int getPrecedence() {
         return precedence;
     }
+
+    @Override
+    public boolean isPure() {
+        return true;
+    }
+
+    @Override
+    public boolean isThreadSafe() {
+        return true;
+    }
 }
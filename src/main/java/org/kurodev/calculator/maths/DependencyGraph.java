@@ -0,0 +1,168 @@
+package org.kurodev.calculator.maths;
+
+import java.math.BigDecimal;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Keeps the formulas of reactively assigned variables and which variables read which,
+ * like the cells of a spreadsheet.
+ * <p>Whenever a variable changes, only the variables that depend on it are evaluated again,
+ * each of them once and only after everything it reads is up to date.
+ * A variable whose formula can no longer be evaluated loses its value until its inputs allow it again.</p>
+ *
+ * @see FormulaParser#setReactive(boolean)
+ */
+final class DependencyGraph {
+    private final Map<String, CompiledExpression> formulas = new HashMap<>();
+    /**
+     * variable name to the names of all variables whose formula reads it.
+     */
+    private final Map<String, Set<String>> dependents = new HashMap<>();
+
+    /**
+     * Assigns a formula to the variable and updates all variables that depend on it.
+     *
+     * @param values the current variable values, updated in place.
+     * @return {@code null} if the variable has been assigned, otherwise the error of the formula,
+     * {@link FormulaParser#ARITHMETIC_ERROR} if it cannot be computed, e.g. because of a division by zero,
+     * or {@link FormulaParser#CIRCULAR_DEPENDENCY} if the formula reads the variable itself, directly or indirectly.
+     */
+    synchronized Calculation define(String name, CompiledExpression formula, Map<String, BigDecimal> values) {
+        if (!formula.isValid()) {
+            return FormulaParser.INVALID_EXPRESSION;
+        }
+        if (readsItself(name, formula)) {
+            return FormulaParser.CIRCULAR_DEPENDENCY;
+        }
+        final var value = formula.evaluate(values);
+        if (value.isError()) {
+            return value;
+        }
+        final var result = value.getResultOrDefault(null);
+        if (result == null) {
+            return FormulaParser.ARITHMETIC_ERROR;
+        }
+        unlink(name);
+        formulas.put(name, formula);
+        for (String input : formula.getVariableNames()) {
+            dependents.computeIfAbsent(input, k -> new HashSet<>()).add(name);
+        }
+        values.put(name, result);
+        recomputeDependents(name, values);
+        return null;
+    }
+
+    /**
+     * Assigns a plain value to the variable, replacing its formula, and updates all variables that depend on it.
+     */
+    synchronized void assign(String name, BigDecimal value, Map<String, BigDecimal> values) {
+        unlink(name);
+        values.put(name, value);
+        recomputeDependents(name, values);
+    }
+
+    private void unlink(String name) {
+        final var old = formulas.remove(name);
+        if (old == null) {
+            return;
+        }
+        for (String input : old.getVariableNames()) {
+            final var readers = dependents.get(input);
+            readers.remove(name);
+            if (readers.isEmpty()) {
+                dependents.remove(input);
+            }
+        }
+    }
+
+    /**
+     * The formula is circular if one of its inputs is the variable itself or one of its dependents.
+     */
+    private boolean readsItself(String name, CompiledExpression formula) {
+        final var inputs = formula.getVariableNames();
+        for (String affected : collectAffected(name)) {
+            if (inputs.contains(affected)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return the variable and everything that depends on it, directly or indirectly.
+     */
+    private Set<String> collectAffected(String name) {
+        final var affected = new HashSet<String>();
+        final var pending = new ArrayDeque<String>();
+        affected.add(name);
+        pending.push(name);
+        while (!pending.isEmpty()) {
+            for (String dependent : dependents.getOrDefault(pending.pop(), Set.of())) {
+                if (affected.add(dependent)) {
+                    pending.push(dependent);
+                }
+            }
+        }
+        return affected;
+    }
+
+    /**
+     * Evaluates all dependents of the changed variable in topological order (Kahn's algorithm):
+     * a variable is evaluated once all of its affected inputs have been.
+     */
+    private void recomputeDependents(String changed, Map<String, BigDecimal> values) {
+        final var affected = collectAffected(changed);
+        if (affected.size() == 1) {
+            return;
+        }
+        final var pendingInputs = new HashMap<String, Integer>();
+        for (String name : affected) {
+            if (!name.equals(changed)) {
+                int count = 0;
+                for (String input : formulas.get(name).getVariableNames()) {
+                    if (affected.contains(input)) {
+                        count++;
+                    }
+                }
+                pendingInputs.put(name, count);
+            }
+        }
+        final var ready = new ArrayDeque<String>();
+        ready.add(changed);
+        while (!ready.isEmpty()) {
+            final var name = ready.poll();
+            if (!name.equals(changed)) {
+                final var value = evaluate(formulas.get(name), values);
+                if (value == null) {
+                    values.remove(name);
+                } else {
+                    values.put(name, value);
+                }
+            }
+            for (String dependent : dependents.getOrDefault(name, Set.of())) {
+                if (pendingInputs.merge(dependent, -1, Integer::sum) == 0) {
+                    ready.add(dependent);
+                }
+            }
+        }
+    }
+
+    /**
+     * An input may have changed to a value the formula cannot handle, e.g. a divisor of zero.
+     * That must not stop the remaining dependents from being updated.
+     *
+     * @return the value or {@code null} if the formula cannot be evaluated.
+     */
+    private static BigDecimal evaluate(CompiledExpression formula, Map<String, BigDecimal> values) {
+        try {
+            final var value = formula.evaluate(values);
+            return value.isError() ? null : value.getResult();
+        } catch (ArithmeticException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package org.kurodev.calculator.maths;
+
+/**
+ * A formula that is evaluated with {@link NumericMode#DOUBLE} on positional variable values,
+ * see {@link CompiledExpression#toDoubleFormula()}.
+ * <p>Implementations are immutable and can be shared between threads.</p>
+ */
+@FunctionalInterface
+public interface DoubleFormula {
+
+    /**
+     * @param variables one value per variable, in the order of {@link CompiledExpression#getVariableNames()}.
+     *                  The array is only read.
+     * @return the result, which may be infinite or NaN.
+     * @throws ArrayIndexOutOfBoundsException if there are fewer values than variables.
+     */
+    double evaluate(double... variables);
+}
@@ -0,0 +1,344 @@
+package org.kurodev.calculator.maths;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Turns postfix tokens into a hidden class that implements {@link DoubleFormula},
+ * so the JIT compiles the whole formula like hand written arithmetic.
+ * <p>The class file is written by hand. Its only method is straight line code without any branch:
+ * every token becomes one or two instructions on the operand stack of the JVM, temporaries become local variables.
+ * That keeps the class file small and means it needs no stack map frames.</p>
+ * <p>Only the {@link DefaultOperations} are translated, formulas with any other operation are not supported.
+ * Hidden classes are unloaded once their formula is no longer used.</p>
+ */
+final class DoubleFormulaGenerator {
+    private static final String CLASS_NAME = "org/kurodev/calculator/maths/GeneratedDoubleFormula";
+    /**
+     * HotSpot does not JIT compile methods longer than this, interpreting those is better left to the
+     * {@link InterpretedDoubleFormula}, which is compiled. The class file format would allow 65535.
+     */
+    private static final int MAX_CODE_LENGTH = 8000;
+    private static final int MAX_POOL_SIZE = 65535;
+
+    //class file constants
+    private static final int MAGIC = 0xCAFEBABE;
+    private static final int JAVA_8 = 52;
+    private static final int ACC_PUBLIC = 0x0001;
+    private static final int ACC_FINAL = 0x0010;
+    private static final int ACC_SUPER = 0x0020;
+    private static final int CONSTANT_UTF8 = 1;
+    private static final int CONSTANT_DOUBLE = 6;
+    private static final int CONSTANT_CLASS = 7;
+    private static final int CONSTANT_METHODREF = 10;
+    private static final int CONSTANT_NAME_AND_TYPE = 12;
+
+    //opcodes
+    private static final int ICONST_0 = 0x03;
+    private static final int DCONST_0 = 0x0e;
+    private static final int DCONST_1 = 0x0f;
+    private static final int BIPUSH = 0x10;
+    private static final int SIPUSH = 0x11;
+    private static final int LDC2_W = 0x14;
+    private static final int DLOAD = 0x18;
+    private static final int DLOAD_0 = 0x26;
+    private static final int ALOAD_0 = 0x2a;
+    private static final int ALOAD_1 = 0x2b;
+    private static final int DALOAD = 0x31;
+    private static final int DSTORE = 0x39;
+    private static final int DSTORE_0 = 0x47;
+    private static final int DUP2 = 0x5c;
+    private static final int DADD = 0x63;
+    private static final int DSUB = 0x67;
+    private static final int DMUL = 0x6b;
+    private static final int DDIV = 0x6f;
+    private static final int DNEG = 0x77;
+    private static final int DRETURN = 0xaf;
+    private static final int RETURN = 0xb1;
+    private static final int INVOKESPECIAL = 0xb7;
+    private static final int INVOKESTATIC = 0xb8;
+    private static final int WIDE = 0xc4;
+
+    private final ConstantPool pool = new ConstantPool();
+
+    private DoubleFormulaGenerator() {
+    }
+
+    /**
+     * @param tokens        structurally valid tokens, as produced by the {@link PostfixOptimizer}.
+     * @param variableCount the number of values passed to {@link DoubleFormula#evaluate(double...)},
+     *                      which are read by the slots of the variable tokens.
+     * @return the formula or {@code null} if the tokens contain an operation that cannot be translated
+     * or the formula is too long to be compiled by the JIT.
+     */
+    static DoubleFormula generate(PostfixToken[] tokens, int variableCount) {
+        for (PostfixToken token : tokens) {
+            if (token.kind == PostfixToken.Kind.OPERATION && !(token.operation instanceof DefaultOperations)) {
+                return null;
+            }
+        }
+        if (variableCount > Short.MAX_VALUE) {
+            return null;
+        }
+        try {
+            final var bytes = new DoubleFormulaGenerator().writeClass(tokens);
+            if (bytes == null) {
+                return null;
+            }
+            final var lookup = MethodHandles.lookup().defineHiddenClass(bytes, true);
+            return (DoubleFormula) lookup.lookupClass().getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | IOException e) {
+            throw new IllegalStateException("generated formula is broken", e);
+        }
+    }
+
+    /**
+     * @return the class file or {@code null} if it would exceed the limits of a class file.
+     */
+    private byte[] writeClass(PostfixToken[] tokens) throws IOException {
+        final int thisClass = pool.classInfo(CLASS_NAME);
+        final int superClass = pool.classInfo("java/lang/Object");
+        final int formulaInterface = pool.classInfo(DoubleFormula.class.getName().replace('.', '/'));
+        final int code = pool.utf8("Code");
+        final int constructorName = pool.utf8("<init>");
+        final int constructorType = pool.utf8("()V");
+        final int evaluateName = pool.utf8("evaluate");
+        final int evaluateType = pool.utf8("([D)D");
+        final var constructor = writeConstructor(superClass);
+        final var evaluate = writeEvaluate(tokens);
+        if (evaluate == null || pool.size > MAX_POOL_SIZE) {
+            return null;
+        }
+
+        final var bytes = new ByteArrayOutputStream();
+        final var out = new DataOutputStream(bytes);
+        out.writeInt(MAGIC);
+        out.writeShort(0);
+        out.writeShort(JAVA_8);
+        pool.writeTo(out);
+        out.writeShort(ACC_PUBLIC | ACC_FINAL | ACC_SUPER);
+        out.writeShort(thisClass);
+        out.writeShort(superClass);
+        out.writeShort(1);
+        out.writeShort(formulaInterface);
+        out.writeShort(0); //fields
+        out.writeShort(2); //methods
+        writeMethod(out, constructorName, constructorType, code, constructor);
+        writeMethod(out, evaluateName, evaluateType, code, evaluate);
+        out.writeShort(0); //attributes
+        return bytes.toByteArray();
+    }
+
+    private byte[] writeConstructor(int superClass) throws IOException {
+        final int superConstructor = pool.methodRef(superClass, "<init>", "()V");
+        final var bytes = new ByteArrayOutputStream();
+        final var out = new DataOutputStream(bytes);
+        out.writeShort(1); //max stack
+        out.writeShort(1); //max locals
+        out.writeInt(5);
+        out.writeByte(ALOAD_0);
+        out.writeByte(INVOKESPECIAL);
+        out.writeShort(superConstructor);
+        out.writeByte(RETURN);
+        out.writeShort(0); //exception table
+        out.writeShort(0); //attributes
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Local variable 1 is the array of variable values, temporaries start at local variable 2.
+     * Doubles occupy two slots of the operand stack and of the local variables.
+     *
+     * @return the code attribute or {@code null} if the code would be too long.
+     */
+    private byte[] writeEvaluate(PostfixToken[] tokens) throws IOException {
+        final var instructions = new ByteArrayOutputStream();
+        final var out = new DataOutputStream(instructions);
+        int depth = 0;
+        int maxDepth = 0;
+        int temporaries = 0;
+        for (PostfixToken token : tokens) {
+            switch (token.kind) {
+                case CONSTANT -> {
+                    pushConstant(out, token.doubleValue);
+                    depth++;
+                }
+                case VARIABLE -> {
+                    out.writeByte(ALOAD_1);
+                    pushInt(out, token.slot);
+                    out.writeByte(DALOAD);
+                    depth++;
+                }
+                case NEGATE -> out.writeByte(DNEG);
+                case OPERATION -> {
+                    writeOperation(out, (DefaultOperations) token.operation);
+                    depth--;
+                }
+                case STORE -> {
+                    out.writeByte(DUP2);
+                    writeLocal(out, DSTORE, DSTORE_0, 2 + token.slot * 2);
+                    temporaries = Math.max(temporaries, token.slot + 1);
+                    maxDepth = Math.max(maxDepth, depth + 1);
+                }
+                case LOAD -> {
+                    writeLocal(out, DLOAD, DLOAD_0, 2 + token.slot * 2);
+                    depth++;
+                }
+            }
+            maxDepth = Math.max(maxDepth, depth);
+        }
+        out.writeByte(DRETURN);
+        if (instructions.size() > MAX_CODE_LENGTH) {
+            return null;
+        }
+        final var bytes = new ByteArrayOutputStream();
+        final var attribute = new DataOutputStream(bytes);
+        //loading a variable needs the array and the index where its value ends up, so it fits as well
+        attribute.writeShort(maxDepth * 2);
+        attribute.writeShort(2 + temporaries * 2);
+        attribute.writeInt(instructions.size());
+        instructions.writeTo(attribute);
+        attribute.writeShort(0); //exception table
+        attribute.writeShort(0); //attributes
+        return bytes.toByteArray();
+    }
+
+    private void writeOperation(DataOutputStream out, DefaultOperations operation) throws IOException {
+        switch (operation) {
+            case ADD -> out.writeByte(DADD);
+            case SUBTRACT -> out.writeByte(DSUB);
+            case MULTIPLY -> out.writeByte(DMUL);
+            case DIVIDE -> out.writeByte(DDIV);
+            case SQUARE -> {
+                out.writeByte(INVOKESTATIC);
+                out.writeShort(pool.methodRef(pool.classInfo("java/lang/Math"), "pow", "(DD)D"));
+            }
+        }
+    }
+
+    private void pushConstant(DataOutputStream out, double value) throws IOException {
+        if (Double.doubleToRawLongBits(value) == 0L) {
+            out.writeByte(DCONST_0);
+        } else if (value == 1d) {
+            out.writeByte(DCONST_1);
+        } else {
+            out.writeByte(LDC2_W);
+            out.writeShort(pool.doubleInfo(value));
+        }
+    }
+
+    private static void pushInt(DataOutputStream out, int value) throws IOException {
+        if (value <= 5) {
+            out.writeByte(ICONST_0 + value);
+        } else if (value <= Byte.MAX_VALUE) {
+            out.writeByte(BIPUSH);
+            out.writeByte(value);
+        } else {
+            out.writeByte(SIPUSH);
+            out.writeShort(value);
+        }
+    }
+
+    private static void writeLocal(DataOutputStream out, int opcode, int shortOpcode, int index) throws IOException {
+        if (index <= 3) {
+            out.writeByte(shortOpcode + index);
+        } else if (index <= 0xff) {
+            out.writeByte(opcode);
+            out.writeByte(index);
+        } else {
+            out.writeByte(WIDE);
+            out.writeByte(opcode);
+            out.writeShort(index);
+        }
+    }
+
+    private static void writeMethod(DataOutputStream out, int name, int type, int code, byte[] attribute) throws IOException {
+        out.writeShort(ACC_PUBLIC);
+        out.writeShort(name);
+        out.writeShort(type);
+        out.writeShort(1);
+        out.writeShort(code);
+        out.writeInt(attribute.length);
+        out.write(attribute);
+    }
+
+    /**
+     * The constant pool of the class, every constant is only added once.
+     */
+    private static final class ConstantPool {
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        private final DataOutputStream out = new DataOutputStream(bytes);
+        private final Map<Object, Integer> indices = new HashMap<>();
+        /**
+         * The index of the next entry, indices start at 1.
+         */
+        private int size = 1;
+
+        int utf8(String value) throws IOException {
+            final var key = "utf8 " + value;
+            final var index = indices.get(key);
+            if (index != null) return index;
+            out.writeByte(CONSTANT_UTF8);
+            out.writeUTF(value);
+            return add(key, 1);
+        }
+
+        int classInfo(String internalName) throws IOException {
+            final var key = "class " + internalName;
+            final var index = indices.get(key);
+            if (index != null) return index;
+            final int name = utf8(internalName);
+            out.writeByte(CONSTANT_CLASS);
+            out.writeShort(name);
+            return add(key, 1);
+        }
+
+        int methodRef(int owner, String name, String type) throws IOException {
+            final var key = "method " + owner + " " + name + type;
+            final var index = indices.get(key);
+            if (index != null) return index;
+            final int nameAndType = nameAndType(name, type);
+            out.writeByte(CONSTANT_METHODREF);
+            out.writeShort(owner);
+            out.writeShort(nameAndType);
+            return add(key, 1);
+        }
+
+        private int nameAndType(String name, String type) throws IOException {
+            final var key = "nameAndType " + name + type;
+            final var index = indices.get(key);
+            if (index != null) return index;
+            final int nameIndex = utf8(name);
+            final int typeIndex = utf8(type);
+            out.writeByte(CONSTANT_NAME_AND_TYPE);
+            out.writeShort(nameIndex);
+            out.writeShort(typeIndex);
+            return add(key, 1);
+        }
+
+        int doubleInfo(double value) throws IOException {
+            final long bits = Double.doubleToRawLongBits(value);
+            final var index = indices.get(bits);
+            if (index != null) return index;
+            out.writeByte(CONSTANT_DOUBLE);
+            out.writeLong(bits);
+            return add(bits, 2); //doubles take up two entries
+        }
+
+        private int add(Object key, int entries) {
+            final int index = size;
+            indices.put(key, index);
+            size += entries;
+            return index;
+        }
+
+        void writeTo(DataOutputStream target) throws IOException {
+            target.writeShort(size);
+            bytes.writeTo(target);
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package org.kurodev.calculator.maths;
+
+import java.math.BigDecimal;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A node of the expression tree built by the {@link ExpressionParser}.
+ * <p>Nodes are immutable. The tree is only walked iteratively,
+ * so even the deep left spine of a long chain like {@code 1+1+...+1} cannot overflow the stack.</p>
+ */
+final class ExpressionNode {
+    final Kind kind;
+    final BigDecimal value;
+    final String name;
+    final Operation operation;
+    /**
+     * The left operand of an {@link Kind#OPERATION} or the operand of a {@link Kind#NEGATE}.
+     */
+    final ExpressionNode left;
+    final ExpressionNode right;
+
+    private ExpressionNode(Kind kind, BigDecimal value, String name, Operation operation,
+                           ExpressionNode left, ExpressionNode right) {
+        this.kind = kind;
+        this.value = value;
+        this.name = name;
+        this.operation = operation;
+        this.left = left;
+        this.right = right;
+    }
+
+    static ExpressionNode constant(BigDecimal value) {
+        return new ExpressionNode(Kind.CONSTANT, value, null, null, null, null);
+    }
+
+    static ExpressionNode variable(String name) {
+        return new ExpressionNode(Kind.VARIABLE, null, name, null, null, null);
+    }
+
+    /**
+     * A negated number is a negative number, {@code -2} is a single constant just like it has always been.
+     */
+    static ExpressionNode negate(ExpressionNode operand) {
+        if (operand.kind == Kind.CONSTANT) {
+            return constant(operand.value.negate());
+        }
+        return new ExpressionNode(Kind.NEGATE, null, null, null, operand, null);
+    }
+
+    static ExpressionNode operation(Operation operation, ExpressionNode left, ExpressionNode right) {
+        return new ExpressionNode(Kind.OPERATION, null, null, operation, left, right);
+    }
+
+    /**
+     * Emits the tree in postfix order and numbers the variables in order of appearance.
+     */
+    PostfixExpression toPostfix() {
+        //reverse postfix order: every node comes before its right and then its left operand
+        final var reversed = new ArrayList<ExpressionNode>();
+        final var pending = new ArrayDeque<ExpressionNode>();
+        pending.push(this);
+        while (!pending.isEmpty()) {
+            final var node = pending.pop();
+            reversed.add(node);
+            if (node.left != null) pending.push(node.left);
+            if (node.right != null) pending.push(node.right);
+        }
+        final var tokens = new PostfixToken[reversed.size()];
+        final Map<String, Integer> slots = new LinkedHashMap<>();
+        for (int i = 0; i < tokens.length; i++) {
+            final var node = reversed.get(tokens.length - 1 - i);
+            tokens[i] = switch (node.kind) {
+                case CONSTANT -> PostfixToken.constant(node.value);
+                case VARIABLE -> PostfixToken.variable(node.name, slots.computeIfAbsent(node.name, name -> slots.size()));
+                case NEGATE -> PostfixToken.NEGATE;
+                case OPERATION -> PostfixToken.operation(node.operation);
+            };
+        }
+        return new PostfixExpression(tokens, List.copyOf(slots.keySet()));
+    }
+
+    enum Kind {
+        CONSTANT,
+        VARIABLE,
+        NEGATE,
+        OPERATION
+    }
+}
@@ -0,0 +1,45 @@
+package org.kurodev.calculator.maths;
+
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Describes how the evaluation of a single large expression is split across threads.
+ * <p>Independent subexpressions of at least {@link #getMinimumSubtreeSize()} operands and operators
+ * are evaluated by tasks of the pool, smaller ones are evaluated by the task that needs them.
+ * A long chain like {@code a*b + c*d + ... + y*z} is split into groups of its terms, whose results are
+ * then combined in the order of the formula, so the result is identical to evaluating on one thread.</p>
+ *
+ * @see CompiledExpression#evaluate(java.util.Map, ExpressionParallelism)
+ */
+public final class ExpressionParallelism extends Parallelism {
+    public static final int DEFAULT_MINIMUM_SUBTREE_SIZE = 1024;
+
+    private ExpressionParallelism(ForkJoinPool pool, int minimumSubtreeSize) {
+        super(pool, minimumSubtreeSize, "minimumSubtreeSize");
+    }
+
+    /**
+     * @return parallelism on the {@link ForkJoinPool#commonPool() common pool}.
+     */
+    public static ExpressionParallelism commonPool() {
+        return of(ForkJoinPool.commonPool());
+    }
+
+    public static ExpressionParallelism of(ForkJoinPool pool) {
+        return new ExpressionParallelism(pool, DEFAULT_MINIMUM_SUBTREE_SIZE);
+    }
+
+    /**
+     * Expressions smaller than this are evaluated on the calling thread.
+     *
+     * @param minimumSubtreeSize the number of operands and operators worth handing to a separate task.
+     * @return a copy of this parallelism with the given subtree size.
+     */
+    public ExpressionParallelism withMinimumSubtreeSize(int minimumSubtreeSize) {
+        return new ExpressionParallelism(getPool(), minimumSubtreeSize);
+    }
+
+    public int getMinimumSubtreeSize() {
+        return getThreshold();
+    }
+}
@@ -0,0 +1,149 @@
+package org.kurodev.calculator.maths;
+
+import java.util.ArrayDeque;
+
+/**
+ * Builds an {@link ExpressionNode expression tree} from the tokens of a {@link Lexer} in a single pass.
+ * <p>An operation binds tighter than every operation of lower {@link Operation#getPrecedence() precedence},
+ * chains of the same precedence are grouped by its {@link Operation#getAssociativity() associativity}.
+ * A negation applies to the operand that follows it together with any right associative operations on it,
+ * so {@code -x^2} is {@code -(x^2)} while {@code -x*2} is {@code (-x)*2}.</p>
+ * <p>Operations, negations and parentheses that still wait for their right operand are kept on a stack
+ * of their own instead of the call stack, so formulas can be nested as deeply as memory allows.</p>
+ * <p>A parser reads its lexer once and is not meant to be reused.</p>
+ */
+final class ExpressionParser {
+    private final OperatorRegistry operations;
+    private final Lexer lexer;
+    private final ArrayDeque<ExpressionNode> operands = new ArrayDeque<>();
+    /**
+     * Operations, negations and opening parentheses, innermost on top.
+     */
+    private final ArrayDeque<Pending> pending = new ArrayDeque<>();
+    private ValidationResult error;
+
+    ExpressionParser(OperatorRegistry operations, Lexer lexer) {
+        this.operations = operations;
+        this.lexer = lexer;
+    }
+
+    /**
+     * @return the root of the tree or {@code null} if the tokens do not form a valid expression,
+     * see {@link #getResult()}.
+     */
+    ExpressionNode parse() {
+        boolean expectOperand = true;
+        for (Token token = lexer.next(); ; token = lexer.next()) {
+            if (expectOperand) {
+                if (token == null) {
+                    return fail(ValidationResult.Kind.MISSING_OPERAND, null);
+                }
+                switch (token.type) {
+                    case NUMBER -> operands.push(ExpressionNode.constant(token.number));
+                    case IDENTIFIER -> operands.push(ExpressionNode.variable(token.identifier));
+                    case LEFT_PARENTHESIS, NEGATION -> pending.push(new Pending(token, null));
+                    case OPERATOR -> {
+                        return fail(operations.contains(token.operator)
+                                ? ValidationResult.Kind.MISSING_OPERAND
+                                : ValidationResult.Kind.UNKNOWN_OPERATOR, token);
+                    }
+                    default -> {
+                        return fail(ValidationResult.Kind.MISSING_OPERAND, token);
+                    }
+                }
+                expectOperand = token.type == Token.Type.LEFT_PARENTHESIS || token.type == Token.Type.NEGATION;
+                continue;
+            }
+            if (token == null) {
+                reduceUntil(null);
+                if (!pending.isEmpty()) {
+                    //reported at the innermost parenthesis that is never closed
+                    return fail(ValidationResult.Kind.UNMATCHED_PARENTHESIS, pending.peek().token);
+                }
+                return operands.pop();
+            }
+            switch (token.type) {
+                case OPERATOR -> {
+                    final var operation = operations.get(token.operator);
+                    if (operation == null) {
+                        return fail(ValidationResult.Kind.UNKNOWN_OPERATOR, token);
+                    }
+                    reduceUntil(operation);
+                    pending.push(new Pending(token, operation));
+                    expectOperand = true;
+                }
+                case RIGHT_PARENTHESIS -> {
+                    reduceUntil(null);
+                    if (pending.isEmpty()) {
+                        return fail(ValidationResult.Kind.UNMATCHED_PARENTHESIS, token);
+                    }
+                    pending.pop();
+                }
+                //implicit multiplications leave nothing but operators and closing parentheses
+                default -> {
+                    return fail(ValidationResult.Kind.UNEXPECTED_OPERAND, token);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return {@link ValidationResult#VALID} or the reason {@link #parse()} failed.
+     */
+    ValidationResult getResult() {
+        return error == null ? ValidationResult.VALID : error;
+    }
+
+    /**
+     * Completes every pending operation and negation whose right operand ends before the next operation.
+     * <p>An operation is complete if the next one has a lower precedence, or the same precedence and the pending
+     * operation is left associative. A negation is complete unless the next operation is right associative.</p>
+     *
+     * @param next the next operation, {@code null} to complete everything up to the innermost opening parenthesis.
+     */
+    private void reduceUntil(Operation next) {
+        while (!pending.isEmpty()) {
+            final var top = pending.peek();
+            if (top.token.type == Token.Type.LEFT_PARENTHESIS) {
+                return;
+            }
+            if (top.operation == null) {
+                if (next != null && next.getAssociativity() == Operation.Associativity.RIGHT) {
+                    return;
+                }
+                pending.pop();
+                operands.push(ExpressionNode.negate(operands.pop()));
+                continue;
+            }
+            if (next != null) {
+                final long precedence = top.operation.getPrecedence();
+                final long nextPrecedence = next.getPrecedence();
+                if (nextPrecedence > precedence || (nextPrecedence == precedence
+                        && top.operation.getAssociativity() == Operation.Associativity.RIGHT)) {
+                    return;
+                }
+            }
+            pending.pop();
+            final var right = operands.pop();
+            operands.push(ExpressionNode.operation(top.operation, operands.pop(), right));
+        }
+    }
+
+    /**
+     * @param token the offending token, {@code null} for the end of the formula.
+     */
+    private ExpressionNode fail(ValidationResult.Kind kind, Token token) {
+        if (error == null) {
+            error = token == null
+                    ? ValidationResult.failed(kind, lexer.position(), "")
+                    : ValidationResult.failed(kind, token.position, token.toString());
+        }
+        return null;
+    }
+
+    /**
+     * An operation waiting for its right operand, or a negation or opening parenthesis if {@code operation} is null.
+     */
+    private record Pending(Token token, Operation operation) {
+    }
+}
@@ -0,0 +1,106 @@
+package org.kurodev.calculator.maths;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Bounded least-recently-used cache of compiled formulas, keyed by the raw formula string.
+ * <p>The cache belongs to a single {@link FormulaParser} and is safe to use from multiple threads.
+ * All entries are dropped as soon as the supported operations change,
+ * because a formula may compile differently with another set of operations.</p>
+ *
+ * @see FormulaParser#enableCache(int)
+ */
+public final class FormulaCache {
+    private final int maximumSize;
+    private final Map<String, CompiledExpression> entries;
+    private long hits;
+    private long misses;
+    private long evictions;
+    private OperatorRegistry operations;
+
+    FormulaCache(int maximumSize) {
+        if (maximumSize <= 0) {
+            throw new IllegalArgumentException("maximum size must be positive: " + maximumSize);
+        }
+        this.maximumSize = maximumSize;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CompiledExpression> eldest) {
+                if (size() > FormulaCache.this.maximumSize) {
+                    evictions++;
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * @param operations the operations the caller would compile with.
+     * @return the cached expression or {@code null} if there is none for the given operations.
+     */
+    synchronized CompiledExpression get(String formula, OperatorRegistry operations) {
+        invalidateIfOutdated(operations);
+        var expression = entries.get(formula);
+        if (expression == null) {
+            misses++;
+        } else {
+            hits++;
+        }
+        return expression;
+    }
+
+    /**
+     * Stores the expression, dropping all entries that were compiled with other operations.
+     */
+    synchronized void put(String formula, CompiledExpression expression, OperatorRegistry operations) {
+        invalidateIfOutdated(operations);
+        entries.put(formula, expression);
+    }
+
+    /**
+     * Registries are immutable, so a different instance means the operations have changed.
+     */
+    private void invalidateIfOutdated(OperatorRegistry operations) {
+        if (this.operations != operations) {
+            entries.clear();
+            this.operations = operations;
+        }
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public int getMaximumSize() {
+        return maximumSize;
+    }
+
+    public synchronized long getHitCount() {
+        return hits;
+    }
+
+    public synchronized long getMissCount() {
+        return misses;
+    }
+
+    public synchronized long getEvictionCount() {
+        return evictions;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "FormulaCache{" +
+                "size=" + entries.size() +
+                ", maximumSize=" + maximumSize +
+                ", hits=" + hits +
+                ", misses=" + misses +
+                ", evictions=" + evictions +
+                '}';
+    }
+}
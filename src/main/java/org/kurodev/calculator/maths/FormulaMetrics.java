@@ -0,0 +1,57 @@
+package org.kurodev.calculator.maths;
+
+/**
+ * Receives measurements from a {@link FormulaParser}, see {@link FormulaParser#setMetrics(FormulaMetrics)}.
+ * <p>All methods do nothing by default, so implementations only override what they are interested in.
+ * They are called on the hot path, from every thread that uses the parser,
+ * so they must be thread-safe and should return quickly. {@link RecordingMetrics} is a ready to use implementation.</p>
+ * <p>Parsers without metrics do not measure anything, so they neither read the clock nor allocate.</p>
+ */
+public interface FormulaMetrics {
+
+    /**
+     * The stages a formula passes through. Not every calculation passes through every stage,
+     * e.g. a formula served from the cache skips {@link #CONVERSION}.
+     */
+    enum Stage {
+        /**
+         * Stripping the whitespace of an assignment, so only assignments pass through this stage.
+         * <p>Other formulas are never normalized up front: the lexer skips whitespace while the parser reads
+         * its tokens, in the same pass, so their normalization is part of {@link #CONVERSION}.</p>
+         */
+        NORMALIZATION,
+        /**
+         * Looking up the values of the variables a formula reads, once per calculation.
+         * During {@link #EVALUATION} they are only read by their slot.
+         */
+        VARIABLE_RESOLUTION,
+        /**
+         * Lexing the formula, including skipping its whitespace, and converting it to postfix.
+         */
+        CONVERSION,
+        EVALUATION
+    }
+
+    /**
+     * @param stage the stage that has been completed.
+     * @param nanos how long it took, in nanoseconds.
+     */
+    default void stageCompleted(Stage stage, long nanos) {
+    }
+
+    /**
+     * Called once per {@link FormulaParser#calculate(String)}.
+     *
+     * @param result the result that is handed out, {@code null} for a successful assignment.
+     *               {@link Calculation#isError()} tells whether it is one of the errors like
+     *               {@link FormulaParser#INVALID_EXPRESSION}.
+     */
+    default void calculationCompleted(Calculation result) {
+    }
+
+    default void cacheHit() {
+    }
+
+    default void cacheMiss() {
+    }
+}
@@ -1,12 +1,27 @@
 package org.kurodev.calculator.maths;
 
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
 import java.math.BigDecimal;
+import java.math.MathContext;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.Charset;
 import java.util.*;
-import java.util.regex.Matcher;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.regex.Pattern;
 
 /**
  * Calculates any given string or mathematical expression that consists of any of the supported operations and parenthesis.
+ * <p>By default a parser supports the operations managed by the static methods like {@link #addOperation(Operation)},
+ * which are shared by all parsers of the JVM. A parser created with its own {@link OperatorRegistry}
+ * is not affected by those methods, so parsers with different dialects can be set up and used in parallel.</p>
+ * <p>A parser can be shared between threads. The supported operations are published as immutable
+ * {@link OperatorRegistry registries}, every formula is compiled against one consistent snapshot of them,
+ * and the variables are kept in a concurrent map.
+ * Use {@link #calculate(String, Map)} to give each evaluation its own variables.</p>
  *
  * @see DefaultOperations
  */
@@ -32,53 +47,261 @@ public class FormulaParser {
      */
     public static final Calculation UNKNOWN_VARIABLE = Calculation.errorInstance("Unknown Variable");
     public static final Calculation INVALID_ASSIGNMENT = Calculation.errorInstance("Invalid assigment");
+    /**
+     * Identifier variable to symbolize a result that is not a finite number, e.g. a division by zero
+     * when evaluating with {@link NumericMode#DOUBLE} or when assigning a variable.
+     */
+    public static final Calculation ARITHMETIC_ERROR = Calculation.errorInstance("Arithmetic Error");
+    /**
+     * Identifier variable to symbolize an assignment in {@link #setReactive(boolean) reactive mode}
+     * whose formula reads the assigned variable itself, directly or through other variables.
+     */
+    public static final Calculation CIRCULAR_DEPENDENCY = Calculation.errorInstance("Circular Dependency");
     private static final Pattern CONTAINS_VARIABLE = Pattern.compile("[a-zA-Z]+");
-    private static final Pattern MULTIPLE_SIGNS = Pattern.compile("[+-]{2,}");
 
-    private static final Set<Operation> OPERATIONS = new HashSet<>(EnumSet.allOf(DefaultOperations.class));
-    private final Map<String, BigDecimal> variables = new HashMap<>();
+    /**
+     * The operations of all parsers without their own registry. Every change publishes a new immutable copy,
+     * which also tells caches to drop their compiled formulas.
+     */
+    private static final AtomicReference<OperatorRegistry> OPERATIONS = new AtomicReference<>(OperatorRegistry.defaults());
+    private final Map<String, BigDecimal> variables = new ConcurrentHashMap<>();
+    /**
+     * The operations of this parser, {@code null} to follow the shared {@link #OPERATIONS}.
+     */
+    private final OperatorRegistry operations;
+    private volatile FormulaCache cache;
+    private volatile NumericMode numericMode = NumericMode.BIG_DECIMAL;
+    private volatile FormulaMetrics metrics;
+    private volatile int promotionThreshold = CompiledExpression.DEFAULT_PROMOTION_THRESHOLD;
+    private volatile MathContext mathContext;
+    /**
+     * The formulas of the variables, {@code null} unless this parser is in reactive mode.
+     */
+    private volatile DependencyGraph dependencies;
 
+    /**
+     * Creates a parser that supports the shared operations, see {@link #addOperation(Operation)}.
+     */
+    public FormulaParser() {
+        this.operations = null;
+    }
+
+    /**
+     * Creates a parser that only supports the given operations.
+     * The static methods that change the shared operations have no effect on it.
+     *
+     * @param operations the operations of this parser
+     */
+    public FormulaParser(OperatorRegistry operations) {
+        this.operations = Objects.requireNonNull(operations);
+    }
 
     /**
-     * Adds the given operation to the parser and enables calculation with it using strings.
+     * Adds the given operation to all parsers without their own {@link OperatorRegistry}
+     * and enables calculation with it using strings.
      * For an operation to be added it must conform to the following rules:
      *
-     * <p>- It must not be an Alphabetic Character</p>
-     * <p>- It must not be a Digit</p>
+     * <p>- It must be a {@link OperatorRegistry#isValidOperator(char) valid operator}, e.g. no Alphabetic Character or Digit</p>
      * <p>- It must be unique (not yet used by another item in the set)</p>
      *
      * <p>if any of these conditions are not met, the item will not be added.</p>
      *
      * @param o The operation to support.
      * @return {@code true} if the operation has been added, {@code false} otherwise
-     * @implNote Recomputes the parser regex everytime something is added.
+     * @implNote Rebuilds the operator lookup table everytime something is added.
      * To add multiple operations use {@link #addOperation(Collection)}
      * @see #addOperation(Collection)
      */
     public static boolean addOperation(Operation o) {
-        if (!OPERATIONS.stream().map(Operation::getOperator).toList().contains(o.getOperator()) &&
-                !Character.isAlphabetic(o.getOperator()) && !Character.isDigit(o.getOperator()))
-            return OPERATIONS.add(o);
-        return false;
+        OperatorRegistry current;
+        OperatorRegistry updated;
+        do {
+            current = OPERATIONS.get();
+            updated = register(current, o);
+            if (updated == current) return false;
+        } while (!OPERATIONS.compareAndSet(current, updated));
+        return true;
+    }
+
+    /**
+     * @return the registry including the operation, or the given registry if the operation is not allowed.
+     */
+    private static OperatorRegistry register(OperatorRegistry registry, Operation o) {
+        final char operator = o.getOperator();
+        if (!OperatorRegistry.isValidOperator(operator) || registry.contains(operator))
+            return registry;
+        return registry.withOperation(o);
     }
 
     /**
      * adds multiple operations to the parser.
-     * recomputes regex once they have all be added.
+     * rebuilds the operator lookup table once they have all be added.
      *
      * @see #addOperation(Operation)
      */
     public static void addOperation(Collection<Operation> o) {
-        o.forEach(FormulaParser::addOperation);
+        OPERATIONS.updateAndGet(registry -> {
+            for (Operation operation : o) {
+                registry = register(registry, operation);
+            }
+            return registry;
+        });
     }
 
     public static void removeOperation(Operation o) {
-        OPERATIONS.removeIf(operation -> operation.getOperator() == o.getOperator());
+        OPERATIONS.updateAndGet(registry -> registry.withoutOperation(o.getOperator()));
     }
 
     public static void restoreDefaultOperations() {
-        OPERATIONS.clear();
-        OPERATIONS.addAll(EnumSet.allOf(DefaultOperations.class));
+        OPERATIONS.set(OperatorRegistry.defaults());
+    }
+
+    /**
+     * @return the operations this parser currently supports.
+     */
+    public OperatorRegistry getOperations() {
+        return operations != null ? operations : OPERATIONS.get();
+    }
+
+    /**
+     * Caches up to {@code maximumSize} compiled formulas, evicting the least recently used one when full.
+     * Any previously cached formulas are discarded.
+     *
+     * @param maximumSize the maximum number of formulas to keep, must be positive.
+     * @see #getCache()
+     */
+    public void enableCache(int maximumSize) {
+        cache = new FormulaCache(maximumSize);
+    }
+
+    public void disableCache() {
+        cache = null;
+    }
+
+    /**
+     * @return the formula cache including its hit and miss counters, {@code null} if caching is disabled.
+     */
+    public FormulaCache getCache() {
+        return cache;
+    }
+
+    public NumericMode getNumericMode() {
+        return numericMode;
+    }
+
+    /**
+     * Selects the number type {@link #calculate(String)} evaluates with, {@link NumericMode#BIG_DECIMAL} by default.
+     * Variable assignments are always evaluated exactly.
+     *
+     * @see NumericMode#DOUBLE for the accuracy of double evaluation
+     */
+    public void setNumericMode(NumericMode numericMode) {
+        this.numericMode = Objects.requireNonNull(numericMode);
+    }
+
+    /**
+     * @see CompiledExpression#getPromotionThreshold()
+     */
+    public int getPromotionThreshold() {
+        return promotionThreshold;
+    }
+
+    /**
+     * Sets after how many evaluations the expressions compiled from now on are promoted
+     * to a tree of method handles, see {@link CompiledExpression#getPromotionThreshold()}.
+     * Clears the formula cache, if it is enabled.
+     *
+     * @param promotionThreshold the number of evaluations, 0 to promote right away and a negative number to never promote.
+     */
+    public void setPromotionThreshold(int promotionThreshold) {
+        this.promotionThreshold = promotionThreshold;
+        final var cache = this.cache;
+        if (cache != null) {
+            cache.clear();
+        }
+    }
+
+    /**
+     * @return the precision and rounding of every operation, {@code null} if the results are exact.
+     */
+    public MathContext getMathContext() {
+        return mathContext;
+    }
+
+    /**
+     * Bounds the precision of every operation in {@link NumericMode#BIG_DECIMAL}, so that long computations
+     * like {@code 2^10000} or chains of multiplications do not get slower with every digit they accumulate.
+     * A bounded precision also changes divisions: without one, {@code 1/3} rounds to the scale of the
+     * dividend and is {@code 0}, with {@link MathContext#DECIMAL64} it is {@code 0.3333333333333333}.
+     * <p>Applies to the formulas compiled from now on and clears the formula cache, if it is enabled.
+     * The variables a formula reads are not rounded, only the results of its operations.</p>
+     *
+     * @param mathContext the precision and rounding, {@code null} or {@link MathContext#UNLIMITED} for exact results.
+     */
+    public void setMathContext(MathContext mathContext) {
+        this.mathContext = mathContext == null || mathContext.getPrecision() == 0 ? null : mathContext;
+        final var cache = this.cache;
+        if (cache != null) {
+            cache.clear();
+        }
+    }
+
+    public boolean isReactive() {
+        return dependencies != null;
+    }
+
+    /**
+     * In reactive mode an assignment like {@code b = a * 2} keeps its formula instead of just its current value.
+     * Whenever {@code a} is assigned again, {@code b} and everything computed from it are updated,
+     * like the cells of a spreadsheet. Formulas that read the assigned variable itself,
+     * e.g. {@code a = a + 1}, are rejected with {@link #CIRCULAR_DEPENDENCY}.
+     * <p>This only applies to the variables of this parser, see {@link #getVariables()}, and to assignments made
+     * with {@link #calculate(String)} and {@link #setVariable(String, BigDecimal)}.
+     * Assignments to another scope or by modifying the map directly are still plain values.</p>
+     *
+     * @param reactive {@code false} to turn all variables back into plain values, they keep their current value.
+     */
+    public synchronized void setReactive(boolean reactive) {
+        if (reactive == isReactive()) {
+            return;
+        }
+        this.dependencies = reactive ? new DependencyGraph() : null;
+    }
+
+    /**
+     * Assigns a value to a variable of this parser, in {@link #setReactive(boolean) reactive mode}
+     * all variables computed from it are updated.
+     *
+     * @throws IllegalArgumentException if the name does not consist of letters only.
+     */
+    public void setVariable(String name, BigDecimal value) {
+        if (!CONTAINS_VARIABLE.matcher(name).matches()) {
+            throw new IllegalArgumentException("not a variable name: " + name);
+        }
+        Objects.requireNonNull(value);
+        final var dependencies = this.dependencies;
+        if (dependencies == null) {
+            variables.put(name, value);
+        } else {
+            dependencies.assign(name, value, variables);
+        }
+    }
+
+    /**
+     * @return the metrics that measure this parser, {@code null} if it is not measured.
+     */
+    public FormulaMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Starts reporting the duration of every stage of a calculation, its result and the cache accesses
+     * to the given metrics, e.g. a {@link RecordingMetrics}.
+     *
+     * @param metrics the metrics to report to, {@code null} to stop measuring.
+     */
+    public void setMetrics(FormulaMetrics metrics) {
+        this.metrics = metrics;
     }
 
     /**
@@ -90,76 +313,188 @@ public class FormulaParser {
      * <p>{@code null} if a variable has just been assigned by passing {@code x = integer-value} as the string</p>
      */
     public Calculation calculate(String formula) {
-        var normalized = formula.replaceAll("\\s", "");
+        return calculate(formula, variables);
+    }
+
+    /**
+     * Like {@link #calculate(String)}, but reads and assigns variables in the given scope
+     * instead of the variables of this parser, so concurrent evaluations do not see each other's variables.
+     *
+     * @param scope the variables of this evaluation, must be thread-safe if it is shared between threads.
+     */
+    public Calculation calculate(String formula, Map<String, BigDecimal> scope) {
+        final var metrics = this.metrics;
+        final Calculation result;
         if (!formula.contains("=")) {
-            normalized = resolveVars(normalize(normalized));
-            if (normalized == null) return UNKNOWN_VARIABLE;
-            if (PostfixCalculator.IS_NUMBER.matcher(normalized).matches())
-                return new Calculation(Double.parseDouble(normalized));
-            PostfixConverter converter = new PostfixConverter(OPERATIONS);
-            var prefix = converter.toPostfix(normalized);
-            PostfixCalculator calculator = new PostfixCalculator(OPERATIONS);
-            if (prefix == null) return INVALID_EXPRESSION;
-            return calculator.evaluate(prefix);
+            result = evaluate(compile(formula), scope, numericMode, metrics);
         } else {
-            return assignVar(normalized);
-        }
-    }
-
-    private String normalize(String formula) {
-        Pattern[] patterns = {
-                Pattern.compile("(\\d\\()"), // 3( -> 3*(
-                Pattern.compile("(\\)\\d)"), // )3 -> )*3
-                Pattern.compile("(\\)\\()"), // )( -> )*(
-                Pattern.compile("\\d+[a-zA-Z]+"), //2x -> 2*x
-        };
-        for (Pattern pattern : patterns) {
-            var matcher = pattern.matcher(formula);
-            StringBuilder formulaCorrected = new StringBuilder();
-            replaceStringSmart(matcher, formulaCorrected, formula);
-            formula = formulaCorrected.toString();
-        }
-
-        return normalizeCorrectedFormula(formula);
-    }
-
-    private void replaceStringSmart(Matcher m, StringBuilder b, String formula) {
-        int lastEnd = 0;
-        if (m.find()) {
-            do {
-                String grp = m.group();
-                b.append(formula, lastEnd, m.start())
-                        .append(grp.charAt(0)).append("*").append(grp.charAt(1));
-                lastEnd = m.end();
-            } while (m.find());
-        }
-        b.append(formula.substring(lastEnd));
-    }
-
-    private String normalizeCorrectedFormula(String formula) {
-        var matcher = MULTIPLE_SIGNS.matcher(formula);
-        final var builder = new StringBuilder();
-        int lastEnd = 0;
-        while (matcher.find()) {
-            var grp = matcher.group();
-            int minus = 0;
-            for (int i = 0; i < grp.length(); i++) {
-                var chara = grp.charAt(i);
-                if (chara == '-') minus++;
-            }
-            builder.append(formula, lastEnd, matcher.start());
-            if ((minus & 1) == 0) {
-                builder.append("+");
-            } else {
-                builder.append("-");
-            }
-            lastEnd = matcher.end();
+            final long start = startStage(metrics);
+            final var normalized = formula.replaceAll("\\s", "");
+            completeStage(metrics, FormulaMetrics.Stage.NORMALIZATION, start);
+            result = assignVar(normalized, scope, metrics);
+        }
+        if (metrics != null) {
+            metrics.calculationCompleted(result);
+        }
+        return result;
+    }
+
+    /**
+     * Checks the syntax of a formula or an assignment without calculating it.
+     * <p>Never throws, so it can be used to reject malformed input cheaply before calculating it.
+     * Formulas without an assignment that are valid here compile to a {@link CompiledExpression#isValid() valid}
+     * expression and the others do not.</p>
+     *
+     * @param formula formula like 5+3-x+9 or an assignment like x = 5+3, {@code null} is reported as empty.
+     * @return {@link ValidationResult#VALID} or the first problem found.
+     */
+    public ValidationResult validate(String formula) {
+        if (formula == null) {
+            return ValidationResult.failed(ValidationResult.Kind.MISSING_OPERAND, 0, "");
+        }
+        final var converter = new PostfixConverter(getOperations());
+        final int equals = formula.indexOf('=');
+        if (equals < 0) {
+            return converter.validate(new Lexer(formula));
+        }
+        final int second = formula.indexOf('=', equals + 1);
+        if (second >= 0) {
+            return ValidationResult.failed(ValidationResult.Kind.INVALID_ASSIGNMENT, second, "=");
+        }
+        final var name = formula.substring(0, equals).strip();
+        if (!CONTAINS_VARIABLE.matcher(name.replaceAll("\\s", "")).matches()) {
+            final int offset = name.isEmpty() ? equals : formula.indexOf(name);
+            return ValidationResult.failed(ValidationResult.Kind.INVALID_ASSIGNMENT, offset, name.isEmpty() ? "=" : name);
+        }
+        if (formula.substring(equals + 1).isBlank()) {
+            return ValidationResult.failed(ValidationResult.Kind.INVALID_ASSIGNMENT, formula.length(), "");
+        }
+        return converter.validate(new Lexer(formula, equals + 1));
+    }
+
+    /**
+     * Parses the given formula once so it can be evaluated many times with different variable values.
+     * Variables are not resolved here, they are looked up whenever the expression is evaluated.
+     *
+     * @param formula formula like 5+3-x+9, assignments are not supported.
+     * @return the compiled formula, {@link CompiledExpression#isValid()} is {@code false}
+     * if the formula is incomplete or contains unsupported expressions.
+     * @implNote Served from the formula cache if it is {@link #enableCache(int) enabled}.
+     */
+    public CompiledExpression compile(String formula) {
+        final var cache = this.cache;
+        final var metrics = this.metrics;
+        if (cache == null) {
+            return compileUncached(new Lexer(formula), getOperations(), metrics);
+        }
+        final var operations = getOperations();
+        var expression = cache.get(formula, operations);
+        if (expression == null) {
+            if (metrics != null) metrics.cacheMiss();
+            expression = compileUncached(new Lexer(formula), operations, metrics);
+            cache.put(formula, expression, operations);
+        } else if (metrics != null) {
+            metrics.cacheHit();
+        }
+        return expression;
+    }
+
+    /**
+     * Like {@link #compile(String)}, but parses the formula while it is read, for formulas too large
+     * to be held in memory as a string. Only a bounded chunk of the characters is buffered at any time,
+     * memory grows with the number of numbers, variables and operations of the formula, not with its text.
+     * <p>The formula is never cached and the reader is not closed.</p>
+     *
+     * @param formula formula like 5+3-x+9, assignments are not supported.
+     * @return the compiled formula, {@link CompiledExpression#isValid()} is {@code false}
+     * if the formula is incomplete or contains unsupported expressions.
+     * @throws IOException if the formula cannot be read.
+     */
+    public CompiledExpression compile(Reader formula) throws IOException {
+        try {
+            return compileUncached(new Lexer(formula), getOperations(), metrics);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Like {@link #compile(Reader)}, decoding the bytes of the channel with the given charset as they are read.
+     * The channel is not closed.
+     *
+     * @throws IOException if the formula cannot be read, or is not valid in the given charset.
+     */
+    public CompiledExpression compile(ReadableByteChannel formula, Charset charset) throws IOException {
+        return compile(Channels.newReader(formula, charset.newDecoder(), Lexer.CHUNK_SIZE));
+    }
+
+    /**
+     * Calculates the formula once per row of the given columns, see {@link CompiledExpression#evaluateBatch(Map)}.
+     * The formula is only parsed once and the variables of this parser are not used.
+     *
+     * @param columns one column of values per variable name, all of the same length.
+     * @return one result per row, rows that failed carry their error instead of throwing.
+     */
+    public BatchResult calculateBatch(String formula, Map<String, double[]> columns) {
+        return compile(formula).evaluateBatch(columns);
+    }
+
+    /**
+     * Parallel version of {@link #calculateBatch(String, Map)}, see {@link BatchParallelism}.
+     */
+    public BatchResult calculateBatch(String formula, Map<String, double[]> columns, BatchParallelism parallelism) {
+        return compile(formula).evaluateBatch(columns, parallelism);
+    }
+
+    /**
+     * Exact counterpart of {@link #calculateBatch(String, Map)},
+     * see {@link CompiledExpression#evaluateBigDecimalBatch(Map)}.
+     */
+    public BatchResult calculateBigDecimalBatch(String formula, Map<String, BigDecimal[]> columns) {
+        return compile(formula).evaluateBigDecimalBatch(columns);
+    }
+
+    /**
+     * Parallel version of {@link #calculateBigDecimalBatch(String, Map)}, see {@link BatchParallelism}.
+     */
+    public BatchResult calculateBigDecimalBatch(String formula, Map<String, BigDecimal[]> columns,
+                                                BatchParallelism parallelism) {
+        return compile(formula).evaluateBigDecimalBatch(columns, parallelism);
+    }
+
+    private CompiledExpression compileUncached(Lexer formula, OperatorRegistry operations, FormulaMetrics metrics) {
+        final long start = startStage(metrics);
+        var postfix = new PostfixConverter(operations).toPostfix(formula);
+        completeStage(metrics, FormulaMetrics.Stage.CONVERSION, start);
+        if (postfix == null) return CompiledExpression.INVALID;
+        return new CompiledExpression(postfix, promotionThreshold, mathContext);
+    }
+
+    private static Calculation evaluate(CompiledExpression expression, Map<String, BigDecimal> scope, NumericMode mode,
+                                        FormulaMetrics metrics) {
+        final long resolution = startStage(metrics);
+        final var values = expression.bind(scope);
+        completeStage(metrics, FormulaMetrics.Stage.VARIABLE_RESOLUTION, resolution);
+        final long evaluation = startStage(metrics);
+        final var result = expression.evaluate(values, mode);
+        completeStage(metrics, FormulaMetrics.Stage.EVALUATION, evaluation);
+        return result;
+    }
+
+    /**
+     * @return the start time of a stage, or 0 without reading the clock if there are no metrics.
+     */
+    private static long startStage(FormulaMetrics metrics) {
+        return metrics == null ? 0 : System.nanoTime();
+    }
+
+    private static void completeStage(FormulaMetrics metrics, FormulaMetrics.Stage stage, long start) {
+        if (metrics != null) {
+            metrics.stageCompleted(stage, System.nanoTime() - start);
         }
-        builder.append(formula.substring(lastEnd));
-        return builder.toString();
     }
 
-    private Calculation assignVar(String normalized) {
+    private Calculation assignVar(String normalized, Map<String, BigDecimal> variables, FormulaMetrics metrics) {
         if (normalized == null) return UNKNOWN_VARIABLE;
         int first = normalized.indexOf("=");
         if (first >= 0) {
@@ -169,15 +504,24 @@ public class FormulaParser {
                     return INVALID_ASSIGNMENT;
                 }
                 var name = assignment[0];
-                var norm = resolveVars(assignment[1]);
-                if (norm == null) return UNKNOWN_VARIABLE;
-                var value = calculate(norm);
+                final var dependencies = this.dependencies;
+                if (dependencies != null && variables == this.variables) {
+                    if (!CONTAINS_VARIABLE.matcher(name).matches()) {
+                        return INVALID_ASSIGNMENT;
+                    }
+                    return dependencies.define(name, compile(assignment[1]), variables);
+                }
+                var value = evaluate(compile(assignment[1]), variables, NumericMode.BIG_DECIMAL, metrics);
                 if (value instanceof NumberErrorInstance) {
                     return value; //some syntax error occurred
                 } else {
                     //name must only contain characters, not numbers or other symbols
                     if (CONTAINS_VARIABLE.matcher(name).matches()) {
-                        variables.put(name, value.getResult());
+                        final var result = value.getResultOrDefault(null);
+                        if (result == null) {
+                            return ARITHMETIC_ERROR;
+                        }
+                        variables.put(name, result);
                         return null;
                     }
                 }
@@ -187,37 +531,6 @@ public class FormulaParser {
         return INVALID_EXPRESSION;
     }
 
-    /**
-     * example: {@code a = 16}; {@code b = 15}
-     * <p>
-     * Input: 5 + a - b +6
-     * <p>
-     * resolved output: 5 + 16 - 15 + 6
-     *
-     * @param str The normalized input string
-     * @return a resolve equation
-     */
-    private String resolveVars(String str) {
-        final var matcher = CONTAINS_VARIABLE.matcher(str);
-        final var builder = new StringBuilder();
-        int lastEnd = 0;
-        while (matcher.find()) {
-            var grp = matcher.group();
-            var val = variables.get(grp);
-            if (val == null) {
-                return null;
-            }
-            builder.append(str, lastEnd, matcher.start());
-            builder.append(val.toPlainString());
-            lastEnd = matcher.end();
-        }
-        if (!builder.toString().isBlank()) {
-            builder.append(str.substring(lastEnd));
-            str = builder.toString();
-        }
-        return str;
-    }
-
     @Override
     public String toString() {
         return "FormulaParser{" +
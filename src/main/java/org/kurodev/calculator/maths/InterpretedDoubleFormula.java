@@ -0,0 +1,18 @@
+package org.kurodev.calculator.maths;
+
+/**
+ * Evaluates postfix tokens with {@link PostfixCalculator#evaluateDouble(PostfixToken[], double[])},
+ * whose variable slots match the positions of the arguments. Used for formulas that cannot be turned into bytecode.
+ */
+final class InterpretedDoubleFormula implements DoubleFormula {
+    private final PostfixToken[] tokens;
+
+    InterpretedDoubleFormula(PostfixToken[] tokens) {
+        this.tokens = tokens;
+    }
+
+    @Override
+    public double evaluate(double... variables) {
+        return PostfixCalculator.evaluateDouble(tokens, variables);
+    }
+}
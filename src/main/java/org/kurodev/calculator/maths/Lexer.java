@@ -0,0 +1,206 @@
+package org.kurodev.calculator.maths;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.util.Arrays;
+
+/**
+ * Splits a formula into {@link Token tokens} in a single pass over its characters.
+ * <p>Whitespace is insignificant, just like it has always been: {@code 1 2} is read as {@code 12}.</p>
+ * <p>While scanning, the lexer also</p>
+ * <p>- collapses runs of signs: {@code 3+-+-2} is read as {@code 3+2}</p>
+ * <p>- inserts implicit multiplications: {@code 3(}, {@code )3}, {@code )(} and {@code 2x}</p>
+ * <p>- tells a minus sign in front of an operand, a {@link Token.Type#NEGATION}, from a subtraction</p>
+ * <p>Any other character is emitted as an operator, whether it is supported or not is up to the caller.</p>
+ * <p>The characters are read in chunks of at most {@link #CHUNK_SIZE}, so a formula read from a {@link Reader}
+ * is never held in memory as a whole, only the token that is being scanned is.</p>
+ */
+final class Lexer {
+    /**
+     * The most characters read from the source at once.
+     */
+    static final int CHUNK_SIZE = 8192;
+    private final Reader source;
+    private final char[] chunk;
+    private int chunkLength;
+    private int index;
+    /**
+     * The offset of the first character of the chunk in the formula.
+     */
+    private int offset;
+    private Token previous;
+    private Token pending;
+    private char[] buffer = new char[32];
+
+    Lexer(String formula) {
+        this(formula, 0);
+    }
+
+    /**
+     * @param start the offset to start scanning at, the positions of the tokens are still offsets in the whole formula.
+     */
+    Lexer(String formula, int start) {
+        this.source = new StringReader(formula);
+        this.chunk = new char[Math.max(1, Math.min(formula.length() - start, CHUNK_SIZE))];
+        this.offset = start;
+        try {
+            source.skip(start);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Scans the characters of the given source as they are read. The source is not closed.
+     * <p>Reading errors are thrown by {@link #next()} as {@link UncheckedIOException}.</p>
+     */
+    Lexer(Reader source) {
+        this.source = source;
+        this.chunk = new char[CHUNK_SIZE];
+    }
+
+    /**
+     * @return the offset of the next character, which is the length of the formula
+     * once {@link #next()} has returned {@code null}.
+     */
+    int position() {
+        return offset + index;
+    }
+
+    private static boolean isLetter(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    /**
+     * @return the next token or {@code null} once the end of the formula is reached.
+     */
+    Token next() {
+        Token token = pending;
+        pending = null;
+        if (token == null) {
+            token = scan();
+            if (token != null && previous != null && previous.endsOperand() && token.startsOperand()) {
+                pending = token;
+                token = Token.operator('*', token.position);
+            }
+        }
+        previous = token;
+        return token;
+    }
+
+    private Token scan() {
+        skipWhitespace();
+        if (!available()) {
+            return null;
+        }
+        final int start = position();
+        final char c = chunk[index];
+        if (isDigit(c)) {
+            return number(start);
+        }
+        if (isLetter(c)) {
+            return identifier(start);
+        }
+        index++;
+        return switch (c) {
+            case '(' -> Token.of(Token.Type.LEFT_PARENTHESIS, start);
+            case ')' -> Token.of(Token.Type.RIGHT_PARENTHESIS, start);
+            case '+', '-' -> sign(start, c);
+            default -> Token.operator(c, start);
+        };
+    }
+
+    private Token sign(int start, char first) {
+        boolean negative = first == '-';
+        while (true) {
+            skipWhitespace();
+            if (!available()) break;
+            char c = chunk[index];
+            if (c == '-') {
+                negative = !negative;
+            } else if (c != '+') {
+                break;
+            }
+            index++;
+        }
+        final char sign = negative ? '-' : '+';
+        if (previous != null && previous.endsOperand()) {
+            return Token.operator(sign, start);
+        }
+        if (!negative) {
+            //unary plus is not supported, the caller rejects it like any misplaced operator
+            return Token.operator(sign, start);
+        }
+        return Token.of(Token.Type.NEGATION, start);
+    }
+
+    private Token number(int start) {
+        int size = 0;
+        boolean fraction = false;
+        while (available()) {
+            char c = chunk[index];
+            if (isDigit(c) || (c == '.' && !fraction)) {
+                fraction |= c == '.';
+                if (size == buffer.length) {
+                    buffer = Arrays.copyOf(buffer, size * 2);
+                }
+                buffer[size++] = c;
+            } else if (!Character.isWhitespace(c)) {
+                break;
+            }
+            index++;
+        }
+        return Token.number(new BigDecimal(buffer, 0, size), start);
+    }
+
+    private Token identifier(int start) {
+        final var name = new StringBuilder();
+        while (available()) {
+            char c = chunk[index];
+            if (isLetter(c)) {
+                name.append(c);
+            } else if (!Character.isWhitespace(c)) {
+                break;
+            }
+            index++;
+        }
+        return Token.identifier(name.toString(), start);
+    }
+
+    private void skipWhitespace() {
+        while (available() && Character.isWhitespace(chunk[index])) {
+            index++;
+        }
+    }
+
+    /**
+     * @return {@code true} if there is a character at {@link #index}, reading the next chunk if necessary.
+     */
+    private boolean available() {
+        if (index < chunkLength) {
+            return true;
+        }
+        if (chunkLength < 0) {
+            return false;
+        }
+        offset += chunkLength;
+        index = 0;
+        try {
+            int read;
+            do {
+                read = source.read(chunk, 0, chunk.length);
+            } while (read == 0);
+            chunkLength = read;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return chunkLength > 0;
+    }
+}
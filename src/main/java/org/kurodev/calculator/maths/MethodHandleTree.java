@@ -0,0 +1,238 @@
+package org.kurodev.calculator.maths;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.math.RoundingMode;
+
+/**
+ * Turns postfix tokens into a tree of {@link MethodHandle method handles}, one per token,
+ * which the JIT can inline into a single compiled method.
+ * <p>The {@link DefaultOperations} are bound to the arithmetic of {@link BigDecimal} or {@code double} directly,
+ * every other operation to its {@link Operation#conclude} method. Building the tree is much cheaper than
+ * {@link DoubleFormulaGenerator generating a class}, so it is the first step up from interpreting the tokens,
+ * see {@link CompiledExpression#getPromotionThreshold()}.</p>
+ * <p>The handles take the variable values by position, in the order of
+ * {@link CompiledExpression#getVariableNames()}. Every evaluation gets an array of its own for the temporaries,
+ * a temporary is computed once where it is stored and read from that array wherever it is loaded.
+ * Left operands are always computed before right operands, so a temporary is stored before it is loaded.</p>
+ */
+final class MethodHandleTree {
+    /**
+     * Larger trees take long to build and are not inlined anyway, the interpreter handles them better.
+     */
+    static final int MAX_TOKENS = 512;
+
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+    private static final MethodHandle DECIMAL_ADD = virtual(BigDecimal.class, "add", BigDecimal.class, BigDecimal.class);
+    private static final MethodHandle DECIMAL_SUBTRACT = virtual(BigDecimal.class, "subtract", BigDecimal.class, BigDecimal.class);
+    private static final MethodHandle DECIMAL_MULTIPLY = virtual(BigDecimal.class, "multiply", BigDecimal.class, BigDecimal.class);
+    private static final MethodHandle DECIMAL_DIVIDE = MethodHandles.insertArguments(
+            virtual(BigDecimal.class, "divide", BigDecimal.class, BigDecimal.class, RoundingMode.class), 2, RoundingMode.HALF_UP);
+    private static final MethodHandle DECIMAL_POW = staticMethod(MethodHandleTree.class, "pow", BigDecimal.class, BigDecimal.class, BigDecimal.class);
+    private static final MethodHandle DECIMAL_ADD_ROUNDED = virtual(BigDecimal.class, "add", BigDecimal.class, BigDecimal.class, MathContext.class);
+    private static final MethodHandle DECIMAL_SUBTRACT_ROUNDED = virtual(BigDecimal.class, "subtract", BigDecimal.class, BigDecimal.class, MathContext.class);
+    private static final MethodHandle DECIMAL_MULTIPLY_ROUNDED = virtual(BigDecimal.class, "multiply", BigDecimal.class, BigDecimal.class, MathContext.class);
+    private static final MethodHandle DECIMAL_DIVIDE_ROUNDED = virtual(BigDecimal.class, "divide", BigDecimal.class, BigDecimal.class, MathContext.class);
+    private static final MethodHandle DECIMAL_POW_ROUNDED = staticMethod(MethodHandleTree.class, "pow", BigDecimal.class, BigDecimal.class, BigDecimal.class, MathContext.class);
+    private static final MethodHandle DECIMAL_NEGATE = virtual(BigDecimal.class, "negate", BigDecimal.class);
+    private static final MethodHandle DECIMAL_CONCLUDE = staticMethod(MethodHandleTree.class, "conclude", BigDecimal.class,
+            Operation.class, MathContext.class, BigDecimal.class, BigDecimal.class);
+    private static final MethodHandle DOUBLE_ADD = staticMethod(MethodHandleTree.class, "add", double.class, double.class, double.class);
+    private static final MethodHandle DOUBLE_SUBTRACT = staticMethod(MethodHandleTree.class, "subtract", double.class, double.class, double.class);
+    private static final MethodHandle DOUBLE_MULTIPLY = staticMethod(MethodHandleTree.class, "multiply", double.class, double.class, double.class);
+    private static final MethodHandle DOUBLE_DIVIDE = staticMethod(MethodHandleTree.class, "divide", double.class, double.class, double.class);
+    private static final MethodHandle DOUBLE_NEGATE = staticMethod(MethodHandleTree.class, "negate", double.class, double.class);
+    private static final MethodHandle DOUBLE_POW = staticMethod(Math.class, "pow", double.class, double.class, double.class);
+    private static final MethodHandle DOUBLE_CONCLUDE = virtual(Operation.class, "conclude", double.class, double.class, double.class);
+    private static final MethodHandle DECIMAL_STORE = staticMethod(MethodHandleTree.class, "store", BigDecimal.class,
+            BigDecimal[].class, int.class, BigDecimal.class);
+    private static final MethodHandle DOUBLE_STORE = staticMethod(MethodHandleTree.class, "store", double.class,
+            double[].class, int.class, double.class);
+
+    private MethodHandleTree() {
+    }
+
+    /**
+     * @param mathContext the precision of every operation, {@code null} for exact results.
+     * @return a handle of type {@code (BigDecimal[])BigDecimal} or {@code null} if there are too many tokens.
+     * Invoking it throws {@link ConclusionFailedException} if an operation concludes with an error.
+     */
+    static MethodHandle forBigDecimals(PostfixToken[] tokens, MathContext mathContext) {
+        return build(tokens, BigDecimal.class, mathContext);
+    }
+
+    /**
+     * @return a handle of type {@code (double[])double} or {@code null} if there are too many tokens.
+     */
+    static MethodHandle forDoubles(PostfixToken[] tokens) {
+        return build(tokens, double.class, null);
+    }
+
+    private static MethodHandle build(PostfixToken[] tokens, Class<?> type, MathContext mathContext) {
+        if (tokens.length > MAX_TOKENS) {
+            return null;
+        }
+        final boolean decimal = type == BigDecimal.class;
+        final Class<?> arrayType = decimal ? BigDecimal[].class : double[].class;
+        final var getter = MethodHandles.arrayElementGetter(arrayType);
+        //every handle takes the values of the variables and the temporaries of the evaluation: (array, array) -> result
+        final MethodHandle[] stack = new MethodHandle[tokens.length];
+        int top = -1;
+        int temporaries = 0;
+        for (PostfixToken token : tokens) {
+            switch (token.kind) {
+                case CONSTANT -> {
+                    final var constant = decimal
+                            ? MethodHandles.constant(BigDecimal.class, token.value)
+                            : MethodHandles.constant(double.class, token.doubleValue);
+                    stack[++top] = MethodHandles.dropArguments(constant, 0, arrayType, arrayType);
+                }
+                case VARIABLE -> stack[++top] = MethodHandles.dropArguments(
+                        MethodHandles.insertArguments(getter, 1, token.slot), 1, arrayType);
+                case NEGATE -> stack[top] = MethodHandles.filterReturnValue(stack[top], decimal ? DECIMAL_NEGATE : DOUBLE_NEGATE);
+                case OPERATION -> {
+                    final var right = stack[top--];
+                    final var operation = decimal
+                            ? decimalOperation(token.operation, mathContext)
+                            : doubleOperation(token.operation);
+                    //(left, values, temporaries) -> result, the left operand is computed first
+                    final var withRight = MethodHandles.collectArguments(operation, 1, right);
+                    stack[top] = MethodHandles.foldArguments(withRight, stack[top]);
+                }
+                case STORE -> {
+                    //(temporaries, values, temporaries) -> result, then both temporaries are bound to the same array
+                    final var store = MethodHandles.insertArguments(decimal ? DECIMAL_STORE : DOUBLE_STORE, 1, token.slot);
+                    final var stored = MethodHandles.collectArguments(store, 1, stack[top]);
+                    stack[top] = MethodHandles.permuteArguments(stored,
+                            MethodType.methodType(type, arrayType, arrayType), 1, 0, 1);
+                    temporaries = Math.max(temporaries, token.slot + 1);
+                }
+                case LOAD -> stack[++top] = MethodHandles.dropArguments(
+                        MethodHandles.insertArguments(getter, 1, token.slot), 0, arrayType);
+            }
+        }
+        final var root = stack[top];
+        if (temporaries == 0) {
+            return MethodHandles.insertArguments(root, 1, (Object) null);
+        }
+        //(values) -> new temporaries, then (temporaries, values) -> result
+        final var allocate = MethodHandles.dropArguments(MethodHandles.insertArguments(
+                MethodHandles.arrayConstructor(arrayType), 0, temporaries), 0, arrayType);
+        final var swapped = MethodHandles.permuteArguments(root, MethodType.methodType(type, arrayType, arrayType), 1, 0);
+        return MethodHandles.foldArguments(swapped, allocate);
+    }
+
+    private static MethodHandle decimalOperation(Operation operation, MathContext mathContext) {
+        if (!(operation instanceof DefaultOperations defaults)) {
+            return MethodHandles.insertArguments(DECIMAL_CONCLUDE, 0, operation, mathContext);
+        }
+        if (mathContext == null) {
+            return switch (defaults) {
+                case ADD -> DECIMAL_ADD;
+                case SUBTRACT -> DECIMAL_SUBTRACT;
+                case MULTIPLY -> DECIMAL_MULTIPLY;
+                case DIVIDE -> DECIMAL_DIVIDE;
+                case SQUARE -> DECIMAL_POW;
+            };
+        }
+        final var rounded = switch (defaults) {
+            case ADD -> DECIMAL_ADD_ROUNDED;
+            case SUBTRACT -> DECIMAL_SUBTRACT_ROUNDED;
+            case MULTIPLY -> DECIMAL_MULTIPLY_ROUNDED;
+            case DIVIDE -> DECIMAL_DIVIDE_ROUNDED;
+            case SQUARE -> DECIMAL_POW_ROUNDED;
+        };
+        return MethodHandles.insertArguments(rounded, 2, mathContext);
+    }
+
+    private static MethodHandle doubleOperation(Operation operation) {
+        if (operation instanceof DefaultOperations defaults) {
+            return switch (defaults) {
+                case ADD -> DOUBLE_ADD;
+                case SUBTRACT -> DOUBLE_SUBTRACT;
+                case MULTIPLY -> DOUBLE_MULTIPLY;
+                case DIVIDE -> DOUBLE_DIVIDE;
+                case SQUARE -> DOUBLE_POW;
+            };
+        }
+        return DOUBLE_CONCLUDE.bindTo(operation);
+    }
+
+    private static BigDecimal pow(BigDecimal a, BigDecimal b) {
+        return Powers.pow(a, b, null);
+    }
+
+    private static BigDecimal pow(BigDecimal a, BigDecimal b, MathContext mathContext) {
+        return Powers.pow(a, b, mathContext);
+    }
+
+    private static BigDecimal conclude(Operation operation, MathContext mathContext, BigDecimal a, BigDecimal b) {
+        final var result = operation.conclude(new Calculation(a, RoundingMode.HALF_UP, mathContext),
+                new Calculation(b, RoundingMode.HALF_UP, mathContext));
+        if (result.isError()) {
+            throw new ConclusionFailedException(result);
+        }
+        return result.getResult();
+    }
+
+    private static BigDecimal store(BigDecimal[] temporaries, int slot, BigDecimal value) {
+        temporaries[slot] = value;
+        return value;
+    }
+
+    private static double store(double[] temporaries, int slot, double value) {
+        temporaries[slot] = value;
+        return value;
+    }
+
+    private static double add(double a, double b) {
+        return a + b;
+    }
+
+    private static double subtract(double a, double b) {
+        return a - b;
+    }
+
+    private static double multiply(double a, double b) {
+        return a * b;
+    }
+
+    private static double divide(double a, double b) {
+        return a / b;
+    }
+
+    private static double negate(double a) {
+        return -a;
+    }
+
+    private static MethodHandle virtual(Class<?> owner, String name, Class<?> returnType, Class<?>... parameters) {
+        try {
+            return LOOKUP.findVirtual(owner, name, MethodType.methodType(returnType, parameters));
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private static MethodHandle staticMethod(Class<?> owner, String name, Class<?> returnType, Class<?>... parameters) {
+        try {
+            return LOOKUP.findStatic(owner, name, MethodType.methodType(returnType, parameters));
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    /**
+     * An operation concluded with an error instead of a number, the tree cannot continue with it.
+     * Thrown without a stack trace, the caller just falls back to the interpreter.
+     */
+    static final class ConclusionFailedException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        ConclusionFailedException(Calculation error) {
+            super(error.toString(), null, false, false);
+        }
+    }
+}
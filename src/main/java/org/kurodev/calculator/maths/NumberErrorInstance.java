@@ -7,6 +7,8 @@ import java.util.Objects;
  * Indicates that an operation using the Number class has resulted in an error of some sort.
  * <p>This class always overrides the {@link #toString()} method to represent the exact error that happened</p>
  * {@link Calculation#isNumber()} always will return false
+ * <p>Every operation on an error, or with an error as its operand, results in that error,
+ * so it is handed out instead of failing halfway through a formula. Only {@link #getResult()} throws.</p>
  */
 public final class NumberErrorInstance extends Calculation {
     private final String errorMsg;
@@ -29,19 +31,34 @@ public final class NumberErrorInstance extends Calculation {
         return Objects.hash(super.hashCode(), errorMsg);
     }
 
+    @Override
+    public Calculation plus(BigDecimal other) {
+        return this;
+    }
+
     @Override
     public Calculation minus(BigDecimal other) {
-        throw new UnsupportedOperationException(toString());
+        return this;
     }
 
     @Override
     public Calculation multiplyWith(BigDecimal b) {
-        throw new UnsupportedOperationException(toString());
+        return this;
     }
 
     @Override
     public Calculation divideBy(BigDecimal b) {
-        throw new UnsupportedOperationException(toString());
+        return this;
+    }
+
+    @Override
+    public Calculation pow(BigDecimal b) {
+        return this;
+    }
+
+    @Override
+    public Calculation sqrt() {
+        return this;
     }
 
     @Override
@@ -0,0 +1,33 @@
+package org.kurodev.calculator.maths;
+
+/**
+ * Selects the number type a {@link CompiledExpression} is evaluated with.
+ *
+ * @see FormulaParser#setNumericMode(NumericMode)
+ */
+public enum NumericMode {
+    /**
+     * Exact decimal arithmetic through {@link Calculation}. This is the default.
+     */
+    BIG_DECIMAL,
+    /**
+     * Primitive IEEE 754 double arithmetic on a {@code double[]} stack, without any allocation per operation.
+     * <p>Accuracy contract:</p>
+     * <p>- every number and variable is first rounded to the nearest {@code double},
+     * so only about 15 to 17 significant decimal digits survive</p>
+     * <p>- {@code +}, {@code -}, {@code *} and {@code /} are correctly rounded per operation,
+     * the error of a whole formula grows with the number of operations
+     * and can be arbitrarily large when nearly equal values are subtracted</p>
+     * <p>- divisions are not rounded to the scale of the dividend like {@link #BIG_DECIMAL} does,
+     * so {@code 7/2} is {@code 3.5} instead of {@code 4}</p>
+     * <p>- {@code ^} uses {@link Math#pow(double, double)} which is within 1 ulp of the exact double result,
+     * while {@link #BIG_DECIMAL} computes integer exponents by squaring and fractional exponents through
+     * {@code exp} and {@code ln} with {@link Powers}, to the precision of its {@link java.math.MathContext}.
+     * A negative base with a fractional exponent gives NaN here and fails there</p>
+     * <p>- division by zero or overflow does not throw, it produces an infinite or NaN result
+     * which {@link FormulaParser#calculate(String)} reports as {@link FormulaParser#ARITHMETIC_ERROR}</p>
+     * <p>- custom {@link Operation operations} that do not override {@link Operation#conclude(double, double)}
+     * are still evaluated through {@link Calculation}, which allocates</p>
+     */
+    DOUBLE
+}
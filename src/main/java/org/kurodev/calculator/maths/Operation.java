@@ -4,6 +4,19 @@ public interface Operation {
 
     Calculation conclude(Calculation a, Calculation b);
 
+    /**
+     * Used when evaluating with {@link NumericMode#DOUBLE}.
+     * <p>default: delegates to {@link #conclude(Calculation, Calculation)}, override it to avoid the allocations.
+     * An error or a failing calculation is {@link Double#NaN}, which is reported like any other result
+     * that is not a finite number.</p>
+     *
+     * @return the result of this operation on primitive doubles.
+     */
+    default double conclude(double a, double b) {
+        final var result = conclude(new Calculation(a), new Calculation(b)).getResultOrDefault(null);
+        return result == null ? Double.NaN : result.doubleValue();
+    }
+
     /**
      * default: 0
      *
@@ -13,5 +26,43 @@ public interface Operation {
         return 0;
     }
 
+    /**
+     * Decides how a chain of operations with the same precedence is grouped.
+     * <p>default: {@link Associativity#LEFT}</p>
+     */
+    default Associativity getAssociativity() {
+        return Associativity.LEFT;
+    }
+
+    /**
+     * A pure operation always returns the same result for the same operands and has no side effects,
+     * so it can already be calculated while compiling if both operands are constants.
+     * <p>default: false</p>
+     */
+    default boolean isPure() {
+        return false;
+    }
+
+    /**
+     * A thread-safe operation may be concluded by several threads at the same time.
+     * Expressions that contain an operation that is not thread-safe are always evaluated on the calling thread,
+     * see {@link Parallelism}.
+     * <p>default: false</p>
+     */
+    default boolean isThreadSafe() {
+        return false;
+    }
+
     char getOperator();
+
+    enum Associativity {
+        /**
+         * {@code a - b - c} is {@code (a - b) - c}.
+         */
+        LEFT,
+        /**
+         * {@code a ^ b ^ c} is {@code a ^ (b ^ c)}.
+         */
+        RIGHT
+    }
 }
@@ -0,0 +1,134 @@
+package org.kurodev.calculator.maths;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable lookup table from operator characters to their {@link Operation}.
+ * <p>ASCII operators are resolved with a single array access, any other character falls back to a map.
+ * A registry is indexed once when it is created and then shared
+ * by the {@link PostfixConverter} and everything that evaluates its output.</p>
+ * <p>Give a {@link FormulaParser} its own registry to support a dialect of operations
+ * that is isolated from every other parser:</p>
+ * <pre>{@code
+ * var parser = new FormulaParser(OperatorRegistry.defaults().withOperation(modulo));
+ * }</pre>
+ */
+public final class OperatorRegistry {
+    private static final int ASCII = 128;
+    private static final OperatorRegistry DEFAULTS = new OperatorRegistry(EnumSet.allOf(DefaultOperations.class));
+    private final Operation[] ascii = new Operation[ASCII];
+    private final Map<Character, Operation> others = new HashMap<>();
+    private final List<Operation> operations;
+
+    private OperatorRegistry(Collection<? extends Operation> operations) {
+        this.operations = Collections.unmodifiableList(new ArrayList<>(operations));
+        for (Operation operation : this.operations) {
+            final char operator = operation.getOperator();
+            if (!isValidOperator(operator)) {
+                throw new IllegalArgumentException("'" + operator + "' cannot be used as an operator");
+            }
+            if (get(operator) != null) {
+                throw new IllegalArgumentException("operator '" + operator + "' is used more than once");
+            }
+            if (operator < ASCII) {
+                ascii[operator] = operation;
+            } else {
+                others.put(operator, operation);
+            }
+        }
+    }
+
+    /**
+     * @param operations operations with unique operator characters.
+     * @throws IllegalArgumentException if two operations share the same operator character
+     *                                  or one of them is not a {@link #isValidOperator(char) valid operator}.
+     */
+    public static OperatorRegistry of(Collection<? extends Operation> operations) {
+        return new OperatorRegistry(operations);
+    }
+
+    /**
+     * @return a registry of all {@link DefaultOperations}.
+     */
+    public static OperatorRegistry defaults() {
+        return DEFAULTS;
+    }
+
+    /**
+     * Letters and digits make up variables and numbers, parenthesis, whitespace, {@code .} and {@code =}
+     * are part of the formula syntax. Any other character can be used as an operator.
+     */
+    public static boolean isValidOperator(char operator) {
+        return !Character.isAlphabetic(operator) && !Character.isDigit(operator) && !Character.isWhitespace(operator)
+                && operator != '(' && operator != ')' && operator != '.' && operator != '=';
+    }
+
+    /**
+     * Registries are immutable, this creates a copy.
+     *
+     * @return a registry that additionally contains the given operation.
+     * @throws IllegalArgumentException if its operator character is already in use or not valid.
+     */
+    public OperatorRegistry withOperation(Operation operation) {
+        final var copy = new ArrayList<Operation>(operations.size() + 1);
+        copy.addAll(operations);
+        copy.add(operation);
+        return new OperatorRegistry(copy);
+    }
+
+    /**
+     * Registries are immutable, this creates a copy.
+     *
+     * @return a registry without the operation for the given character, or this registry if there is none.
+     */
+    public OperatorRegistry withoutOperation(char operator) {
+        if (!contains(operator)) {
+            return this;
+        }
+        final var copy = new ArrayList<Operation>(operations.size());
+        for (Operation operation : operations) {
+            if (operation.getOperator() != operator) {
+                copy.add(operation);
+            }
+        }
+        return new OperatorRegistry(copy);
+    }
+
+    /**
+     * @return the operation for the given character or {@code null} if there is none.
+     */
+    public Operation get(char operator) {
+        if (operator < ASCII) {
+            return ascii[operator];
+        }
+        return others.get(operator);
+    }
+
+    public boolean contains(char operator) {
+        return get(operator) != null;
+    }
+
+    /**
+     * @return all registered operations, in the order they were registered.
+     */
+    public List<Operation> getOperations() {
+        return operations;
+    }
+
+    public int size() {
+        return operations.size();
+    }
+
+    @Override
+    public String toString() {
+        return "OperatorRegistry{" +
+                "operations=" + operations +
+                '}';
+    }
+}
@@ -0,0 +1,47 @@
+package org.kurodev.calculator.maths;
+
+import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * A {@link ForkJoinPool} to split an evaluation across, together with the smallest piece of work
+ * that is worth handing to a separate task.
+ * <p>Only expressions whose operations are all {@link Operation#isThreadSafe() thread-safe}
+ * are split, any other expression is evaluated on the calling thread.</p>
+ *
+ * @see BatchParallelism
+ * @see ExpressionParallelism
+ */
+public abstract class Parallelism {
+    private final ForkJoinPool pool;
+    private final int threshold;
+    private final String thresholdName;
+
+    /**
+     * @param thresholdName the name of the threshold in messages and {@link #toString()}.
+     */
+    Parallelism(ForkJoinPool pool, int threshold, String thresholdName) {
+        if (threshold <= 0) {
+            throw new IllegalArgumentException(thresholdName + " must be positive: " + threshold);
+        }
+        this.pool = Objects.requireNonNull(pool);
+        this.threshold = threshold;
+        this.thresholdName = thresholdName;
+    }
+
+    public ForkJoinPool getPool() {
+        return pool;
+    }
+
+    final int getThreshold() {
+        return threshold;
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "{" +
+                "pool=" + pool +
+                ", " + thresholdName + "=" + threshold +
+                '}';
+    }
+}
@@ -1,47 +1,115 @@
 package org.kurodev.calculator.maths;
 
 import java.math.BigDecimal;
+import java.math.MathContext;
 import java.math.RoundingMode;
-import java.util.ArrayDeque;
-import java.util.Deque;
-import java.util.Set;
-import java.util.regex.Pattern;
+import java.util.List;
+import java.util.Map;
 
 public class PostfixCalculator {
-    static final Pattern IS_NUMBER = Pattern.compile("-?((\\d+\\.\\d+)|\\d+)");
-    private final Set<Operation> operations;
 
-    PostfixCalculator(Set<Operation> operations) {
-        this.operations = operations;
+    public PostfixCalculator() {
     }
 
-    private static boolean isOperand(String part) {
-        return IS_NUMBER.matcher(part).matches();
+    /**
+     * Evaluates already resolved postfix tokens.
+     *
+     * @param tokens      structurally valid tokens, as produced by the {@link PostfixConverter}
+     * @param values      the values of the variables, indexed by the slot of their tokens.
+     * @param mathContext the precision of every operation, {@code null} for exact results.
+     * @return the result of the calculation or {@link FormulaParser#UNKNOWN_VARIABLE}
+     * if a referenced variable has no value.
+     */
+    static Calculation evaluate(PostfixToken[] tokens, BigDecimal[] values, MathContext mathContext) {
+        return evaluate(tokens, 0, tokens.length, values, mathContext);
     }
 
-    public Calculation evaluate(String expr) {
-        final Deque<Calculation> stack = new ArrayDeque<>();
-        var parts = expr.split(PostfixConverter.DELIM);
-        for (String part : parts) {
-            if (isOperand(part)) {
-                stack.push(new Calculation(new BigDecimal(part), RoundingMode.HALF_UP));
-            } else {
-                Operation op = getOperation(part);
-                if (op == null) {
-                    return FormulaParser.INVALID_EXPRESSION;
+    /**
+     * Evaluates the subexpression that consists of the tokens from {@code from} to {@code to}, exclusive.
+     *
+     * @see #evaluate(PostfixToken[], BigDecimal[], MathContext)
+     */
+    static Calculation evaluate(PostfixToken[] tokens, int from, int to, BigDecimal[] values, MathContext mathContext) {
+        final Calculation[] stack = new Calculation[to - from];
+        int top = -1;
+        for (int i = from; i < to; i++) {
+            final var token = tokens[i];
+            switch (token.kind) {
+                case CONSTANT -> stack[++top] = new Calculation(token.value, RoundingMode.HALF_UP, mathContext);
+                case VARIABLE -> {
+                    var value = values[token.slot];
+                    if (value == null) {
+                        return FormulaParser.UNKNOWN_VARIABLE;
+                    }
+                    stack[++top] = new Calculation(value, RoundingMode.HALF_UP, mathContext);
                 }
-                var o2 = stack.pop();
-                var o1 = stack.pop();
-                var res = op.conclude(o1, o2);
-                stack.push(res);
+                case NEGATE -> {
+                    //a negated error is still the same error
+                    if (!stack[top].isError()) {
+                        stack[top] = new Calculation(stack[top].getResult().negate(), RoundingMode.HALF_UP, mathContext);
+                    }
+                }
+                case OPERATION -> {
+                    var o2 = stack[top--];
+                    stack[top] = token.operation.conclude(stack[top], o2);
+                }
+                case STORE -> stack[token.temporaryIndex(stack.length)] = stack[top];
+                case LOAD -> stack[++top] = stack[token.temporaryIndex(stack.length)];
+            }
+        }
+        return stack[top];
+    }
+
+    /**
+     * Evaluates already resolved postfix tokens on a primitive stack, see {@link NumericMode#DOUBLE}.
+     *
+     * @param tokens structurally valid tokens, as produced by the {@link PostfixConverter}
+     * @param values the values of the variables, indexed by the slot of their tokens.
+     * @return the result of the calculation, which may be infinite or NaN.
+     */
+    static double evaluateDouble(PostfixToken[] tokens, double[] values) {
+        final double[] stack = new double[tokens.length];
+        int top = -1;
+        for (PostfixToken token : tokens) {
+            switch (token.kind) {
+                case CONSTANT -> stack[++top] = token.doubleValue;
+                case VARIABLE -> stack[++top] = values[token.slot];
+                case NEGATE -> stack[top] = -stack[top];
+                case OPERATION -> {
+                    var o2 = stack[top--];
+                    stack[top] = token.operation.conclude(stack[top], o2);
+                }
+                case STORE -> stack[token.temporaryIndex(stack.length)] = stack[top];
+                case LOAD -> stack[++top] = stack[token.temporaryIndex(stack.length)];
             }
         }
-        return stack.pop();
+        return stack[top];
+    }
+
+    public Calculation evaluate(PostfixExpression expr) {
+        return evaluate(expr, Map.of());
     }
 
-    private Operation getOperation(String part) {
-        return operations.stream()
-                .filter(operation -> part.equals(String.valueOf(operation.getOperator())))
-                .findFirst().orElse(null);
+    /**
+     * @param variables the values of all variables referenced by the expression, the map is only read.
+     * @return the result of the calculation or {@link FormulaParser#UNKNOWN_VARIABLE}
+     * if a referenced variable has no value.
+     */
+    public Calculation evaluate(PostfixExpression expr, Map<String, BigDecimal> variables) {
+        return evaluate(expr.tokens, bind(expr.getVariableNames(), variables), null);
+    }
+
+    /**
+     * Looks up the value of every variable once, so evaluating a variable is a single array access.
+     *
+     * @param names the names of the variables, indexed by slot.
+     * @return the values indexed by slot, {@code null} for variables without a value.
+     */
+    static BigDecimal[] bind(List<String> names, Map<String, BigDecimal> variables) {
+        final var values = new BigDecimal[names.size()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = variables.get(names.get(i));
+        }
+        return values;
     }
 }
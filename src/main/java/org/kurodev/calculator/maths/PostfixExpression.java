@@ -0,0 +1,51 @@
+package org.kurodev.calculator.maths;
+
+import java.util.List;
+import java.util.StringJoiner;
+
+/**
+ * Compact postfix form of a formula, as produced by the {@link PostfixConverter}.
+ * <p>Operands are stored pre-parsed and operators as direct {@link Operation} references,
+ * so the {@link PostfixCalculator} never has to parse or match any text.
+ * Variables are numbered in order of appearance when the formula is converted,
+ * evaluating one is a single array access instead of a lookup by name.
+ * The space delimited string form is only available through {@link #toString()} for debugging.</p>
+ */
+public final class PostfixExpression {
+    final PostfixToken[] tokens;
+    private final List<String> variableNames;
+
+    /**
+     * @param variableNames the names of the variables, indexed by the slot of their tokens.
+     */
+    PostfixExpression(PostfixToken[] tokens, List<String> variableNames) {
+        this.tokens = tokens;
+        this.variableNames = List.copyOf(variableNames);
+    }
+
+    /**
+     * @return the names of all variables in order of appearance, the index of a name is the slot its value is read from.
+     */
+    public List<String> getVariableNames() {
+        return variableNames;
+    }
+
+    /**
+     * @return the number of operands and operators in this expression.
+     */
+    public int size() {
+        return tokens.length;
+    }
+
+    /**
+     * @return the expression in postfix notation, delimited by {@link PostfixConverter#DELIM}.
+     */
+    @Override
+    public String toString() {
+        final var joiner = new StringJoiner(PostfixConverter.DELIM);
+        for (PostfixToken token : tokens) {
+            joiner.add(token.toString());
+        }
+        return joiner.toString();
+    }
+}
@@ -0,0 +1,270 @@
+package org.kurodev.calculator.maths;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Simplifies postfix tokens before they are evaluated, without changing the result of any evaluation.
+ * <ul>
+ *     <li>Operations on constants only are folded into a single constant,
+ *     if the operation is {@link Operation#isPure() pure}. So are negated constants.</li>
+ *     <li>Operands that do not change the result of a {@link DefaultOperations default operation} are dropped:
+ *     {@code x+0}, {@code 0+x}, {@code x-0}, {@code x*1}, {@code 1*x}, {@code x/1} and {@code x^1}.
+ *     Only an exact {@code 0} or {@code 1} counts, {@code x*1.0} would change the scale of the result.
+ *     Not done with a {@link MathContext}, which rounds even the result of {@code x*1}.</li>
+ *     <li>Subexpressions that occur more than once are only evaluated once, the result is kept in a temporary
+ *     and loaded wherever the subexpression occurs again, see {@link #shareCommonSubexpressions(PostfixToken[])}.</li>
+ * </ul>
+ * <p>Constants are folded with the arithmetic of the {@link NumericMode} and {@link MathContext}
+ * the tokens will be evaluated with, {@code 1/3} is {@code 0} with {@link BigDecimal} but not with {@code double}.
+ * Operations that fail on their constants, like {@code 1/0}, are left as they are, so they still fail
+ * whenever they are evaluated.</p>
+ */
+final class PostfixOptimizer {
+
+    private PostfixOptimizer() {
+    }
+
+    /**
+     * @param tokens structurally valid tokens, as produced by the {@link PostfixConverter}. They are not modified.
+     * @param mode        the mode the result is going to be evaluated in.
+     * @param mathContext the precision the result is going to be evaluated with, only used for {@link NumericMode#BIG_DECIMAL}.
+     * @return the simplified tokens, or the given ones if there was nothing to simplify.
+     */
+    static PostfixToken[] fold(PostfixToken[] tokens, NumericMode mode, MathContext mathContext) {
+        final boolean identities = mode == NumericMode.DOUBLE || mathContext == null;
+        final List<PostfixToken> out = new ArrayList<>(tokens.length);
+        //start index in out of every operand on the evaluation stack
+        final int[] starts = new int[tokens.length];
+        int top = -1;
+        for (PostfixToken token : tokens) {
+            switch (token.kind) {
+                case CONSTANT, VARIABLE -> {
+                    starts[++top] = out.size();
+                    out.add(token);
+                }
+                case NEGATE -> {
+                    final var operand = constantAt(out, starts[top], out.size());
+                    final var folded = operand == null ? null : negate(operand, mode);
+                    if (folded != null) {
+                        out.set(starts[top], folded);
+                    } else {
+                        out.add(token);
+                    }
+                }
+                case OPERATION -> {
+                    final int right = starts[top--];
+                    final int left = starts[top];
+                    final var a = constantAt(out, left, right);
+                    final var b = constantAt(out, right, out.size());
+                    final var folded = a != null && b != null ? fold(token.operation, a, b, mode, mathContext) : null;
+                    if (folded != null) {
+                        truncate(out, left);
+                        out.add(folded);
+                    } else if (identities && b != null && isRightIdentity(token.operation, b.value)) {
+                        truncate(out, right);
+                    } else if (identities && a != null && isLeftIdentity(token.operation, a.value)) {
+                        out.subList(left, right).clear();
+                    } else {
+                        out.add(token);
+                    }
+                }
+            }
+        }
+        if (out.size() == tokens.length) {
+            return tokens;
+        }
+        return out.toArray(new PostfixToken[0]);
+    }
+
+    /**
+     * Finds identical subexpressions by giving every distinct subexpression a single node (hash consing),
+     * turning the expression tree into a directed acyclic graph.
+     * A node that is reached more than once is evaluated where it first occurs,
+     * {@link PostfixToken.Kind#STORE stored} and {@link PostfixToken.Kind#LOAD loaded} everywhere else.
+     * <p>Subexpressions with an operation that is not {@link Operation#isPure() pure} are never shared,
+     * as they may evaluate differently each time.</p>
+     *
+     * @param tokens structurally valid tokens without temporaries. They are not modified.
+     * @return tokens that evaluate every common subexpression once,
+     * or the given ones if there is no common subexpression.
+     */
+    static PostfixToken[] shareCommonSubexpressions(PostfixToken[] tokens) {
+        final var nodes = new HashMap<NodeKey, Integer>();
+        //the distinct nodes, by id
+        final var nodeTokens = new PostfixToken[tokens.length];
+        final int[] lefts = new int[tokens.length];
+        final int[] rights = new int[tokens.length];
+        final int[] stack = new int[tokens.length];
+        int count = 0;
+        int top = -1;
+        for (PostfixToken token : tokens) {
+            int left = -1;
+            int right = -1;
+            if (token.kind == PostfixToken.Kind.OPERATION) {
+                right = stack[top--];
+                left = stack[top--];
+            } else if (token.kind == PostfixToken.Kind.NEGATE) {
+                left = stack[top--];
+            }
+            final var key = new NodeKey(token.kind, token.value, token.name, token.operation, left, right);
+            Integer id = token.kind == PostfixToken.Kind.OPERATION && !token.operation.isPure() ? null : nodes.get(key);
+            if (id == null) {
+                id = count++;
+                nodeTokens[id] = token;
+                lefts[id] = left;
+                rights[id] = right;
+                nodes.put(key, id);
+            }
+            stack[++top] = id;
+        }
+        if (count == tokens.length) {
+            return tokens; //every node is distinct
+        }
+        final int root = stack[top];
+
+        //count how often each node is reached, the subexpressions of a shared node are only reached through it once
+        final int[] uses = new int[count];
+        top = -1;
+        stack[++top] = root;
+        while (top >= 0) {
+            final int id = stack[top--];
+            if (uses[id]++ == 0) {
+                if (lefts[id] >= 0) stack[++top] = lefts[id];
+                if (rights[id] >= 0) stack[++top] = rights[id];
+            }
+        }
+
+        //emit in postfix order, a negative entry on the stack means the children of that node have been emitted
+        final List<PostfixToken> out = new ArrayList<>(tokens.length);
+        final int[] slots = new int[count];
+        Arrays.fill(slots, -1);
+        int nextSlot = 0;
+        final int[] pending = new int[tokens.length * 2];
+        top = -1;
+        pending[++top] = root;
+        while (top >= 0) {
+            final int entry = pending[top--];
+            final int id = entry < 0 ? ~entry : entry;
+            final boolean shared = uses[id] > 1 && lefts[id] >= 0;
+            if (entry < 0) {
+                out.add(nodeTokens[id]);
+                if (shared) {
+                    slots[id] = nextSlot++;
+                    out.add(PostfixToken.store(slots[id]));
+                }
+            } else if (slots[id] >= 0) {
+                out.add(PostfixToken.load(slots[id]));
+            } else {
+                pending[++top] = ~id;
+                if (rights[id] >= 0) pending[++top] = rights[id];
+                if (lefts[id] >= 0) pending[++top] = lefts[id];
+            }
+        }
+        if (nextSlot == 0) {
+            return tokens; //only operands repeat themselves
+        }
+        return out.toArray(new PostfixToken[0]);
+    }
+
+    /**
+     * @param before tokens without temporaries
+     * @param after  the same tokens after {@link #shareCommonSubexpressions(PostfixToken[])}
+     * @return the number of tokens that no longer have to be evaluated.
+     */
+    static int countDeduplicated(PostfixToken[] before, PostfixToken[] after) {
+        int temporaries = 0;
+        for (PostfixToken token : after) {
+            if (token.kind == PostfixToken.Kind.STORE || token.kind == PostfixToken.Kind.LOAD) {
+                temporaries++;
+            }
+        }
+        return before.length - (after.length - temporaries);
+    }
+
+    /**
+     * Identifies a node by its token and the ids of its operands.
+     */
+    private record NodeKey(PostfixToken.Kind kind, BigDecimal value, String name, Operation operation,
+                           int left, int right) {
+    }
+
+    /**
+     * @return the token if the operand between the given indices is a single constant, otherwise {@code null}.
+     */
+    private static PostfixToken constantAt(List<PostfixToken> out, int start, int end) {
+        if (end - start != 1) {
+            return null;
+        }
+        final var token = out.get(start);
+        return token.kind == PostfixToken.Kind.CONSTANT ? token : null;
+    }
+
+    private static PostfixToken negate(PostfixToken operand, NumericMode mode) {
+        if (mode == NumericMode.DOUBLE) {
+            return doubleConstant(-operand.doubleValue);
+        }
+        return PostfixToken.constant(operand.value.negate());
+    }
+
+    /**
+     * @return the result, computed exactly like {@link PostfixCalculator} would,
+     * or {@code null} if it cannot be folded.
+     */
+    private static PostfixToken fold(Operation operation, PostfixToken a, PostfixToken b, NumericMode mode,
+                                     MathContext mathContext) {
+        if (!operation.isPure()) {
+            return null;
+        }
+        try {
+            if (mode == NumericMode.DOUBLE) {
+                return doubleConstant(operation.conclude(a.doubleValue, b.doubleValue));
+            }
+            final var result = operation.conclude(new Calculation(a.value, RoundingMode.HALF_UP, mathContext),
+                    new Calculation(b.value, RoundingMode.HALF_UP, mathContext));
+            return result.isNumber() ? PostfixToken.constant(result.getResult()) : null;
+        } catch (RuntimeException e) {
+            return null; //fail on evaluation, as without folding
+        }
+    }
+
+    /**
+     * The {@link BigDecimal} of a double is exact, so the token evaluates to exactly the given double.
+     *
+     * @return the constant or {@code null} for values a {@link BigDecimal} cannot represent,
+     * which are infinity, NaN and negative zero.
+     */
+    private static PostfixToken doubleConstant(double value) {
+        if (!Double.isFinite(value) || value == 0 && 1 / value < 0) {
+            return null;
+        }
+        return PostfixToken.constant(new BigDecimal(value));
+    }
+
+    private static boolean isRightIdentity(Operation operation, BigDecimal b) {
+        if (b == null || !(operation instanceof DefaultOperations)) {
+            return false;
+        }
+        return switch ((DefaultOperations) operation) {
+            case ADD, SUBTRACT -> BigDecimal.ZERO.equals(b);
+            case MULTIPLY, DIVIDE, SQUARE -> BigDecimal.ONE.equals(b);
+        };
+    }
+
+    private static boolean isLeftIdentity(Operation operation, BigDecimal a) {
+        if (a == null) {
+            return false;
+        }
+        return operation == DefaultOperations.ADD && BigDecimal.ZERO.equals(a)
+                || operation == DefaultOperations.MULTIPLY && BigDecimal.ONE.equals(a);
+    }
+
+    private static void truncate(List<PostfixToken> out, int size) {
+        out.subList(size, out.size()).clear();
+    }
+}
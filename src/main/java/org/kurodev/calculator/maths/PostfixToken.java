@@ -0,0 +1,94 @@
+package org.kurodev.calculator.maths;
+
+import java.math.BigDecimal;
+
+/**
+ * A single, already resolved element of a postfix expression.
+ * <p>Operands are stored pre-parsed and operators as direct {@link Operation} references,
+ * so evaluating a token never has to look at the formula text again.</p>
+ */
+final class PostfixToken {
+    static final PostfixToken NEGATE = new PostfixToken(Kind.NEGATE, null, null, null, -1);
+
+    final Kind kind;
+    final BigDecimal value;
+    /**
+     * {@link #value} as a double, so {@link NumericMode#DOUBLE} never has to convert it.
+     */
+    final double doubleValue;
+    final String name;
+    final Operation operation;
+    /**
+     * The index of the value a {@link Kind#VARIABLE} reads, see {@link PostfixExpression#getVariableNames()},
+     * or the temporary a {@link Kind#STORE} or {@link Kind#LOAD} accesses, see {@link #temporaryIndex(int)}.
+     */
+    final int slot;
+
+    private PostfixToken(Kind kind, BigDecimal value, String name, Operation operation, int slot) {
+        this.kind = kind;
+        this.value = value;
+        this.doubleValue = value == null ? Double.NaN : value.doubleValue();
+        this.name = name;
+        this.operation = operation;
+        this.slot = slot;
+    }
+
+    static PostfixToken constant(BigDecimal value) {
+        return new PostfixToken(Kind.CONSTANT, value, null, null, -1);
+    }
+
+    static PostfixToken variable(String name, int slot) {
+        return new PostfixToken(Kind.VARIABLE, null, name, null, slot);
+    }
+
+    static PostfixToken operation(Operation operation) {
+        return new PostfixToken(Kind.OPERATION, null, null, operation, -1);
+    }
+
+    static PostfixToken store(int slot) {
+        return new PostfixToken(Kind.STORE, null, null, null, slot);
+    }
+
+    static PostfixToken load(int slot) {
+        return new PostfixToken(Kind.LOAD, null, null, null, slot);
+    }
+
+    /**
+     * Temporaries are kept at the end of the evaluation stack, which is as long as the tokens.
+     * They never collide with the operands: every operand on the stack was pushed by a token
+     * and every temporary has a {@link Kind#STORE} token of its own.
+     *
+     * @param stackLength the length of the evaluation stack, which is the number of tokens.
+     * @return the index of the temporary of this token in the evaluation stack.
+     */
+    int temporaryIndex(int stackLength) {
+        return stackLength - 1 - slot;
+    }
+
+    @Override
+    public String toString() {
+        return switch (kind) {
+            case CONSTANT -> value.toPlainString();
+            case VARIABLE -> name;
+            case OPERATION -> String.valueOf(operation.getOperator());
+            case NEGATE -> PostfixConverter.NEGATION;
+            case STORE -> "$" + slot + "=";
+            case LOAD -> "$" + slot;
+        };
+    }
+
+    enum Kind {
+        CONSTANT,
+        VARIABLE,
+        OPERATION,
+        NEGATE,
+        /**
+         * Copies the top of the stack into a temporary, without popping it.
+         */
+        STORE,
+        /**
+         * Pushes a temporary onto the stack.
+         */
+        LOAD
+    }
+}
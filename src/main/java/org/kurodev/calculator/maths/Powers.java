@@ -0,0 +1,265 @@
+package org.kurodev.calculator.maths;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.math.RoundingMode;
+
+/**
+ * Powers and square roots of {@link BigDecimal}s, as used by {@link Calculation#pow(BigDecimal)}
+ * and {@link Calculation#sqrt()}.
+ * <p>Integer exponents are computed by squaring, which takes a logarithmic number of multiplications
+ * that are each rounded to the requested precision plus a few guard digits. Fractional exponents and integer
+ * exponents beyond the range of {@code int} are computed as {@code exp(b * ln(|a|))}, square roots by Newton
+ * iteration.</p>
+ * <p>Without a {@link MathContext} powers are exact as long as the exact result has finitely many digits,
+ * but no more than {@link #MAX_EXACT_DIGITS}, any other result is rounded to {@link #DEFAULT_CONTEXT}.
+ * {@link NumericMode#DOUBLE} does not use this class, it computes every power with {@link Math#pow(double, double)}.</p>
+ */
+public final class Powers {
+    /**
+     * Precision of results that cannot be exact when no {@link MathContext} is given.
+     */
+    public static final MathContext DEFAULT_CONTEXT = MathContext.DECIMAL128;
+    /**
+     * Integer powers whose exact result may have more digits than this are rounded even when no {@link MathContext}
+     * is given, computing them exactly takes too long.
+     */
+    public static final int MAX_EXACT_DIGITS = 100_000;
+    private static final BigDecimal TWO = BigDecimal.valueOf(2);
+    private static final BigDecimal HALF = new BigDecimal("0.5");
+    private static final BigDecimal ONE_AND_A_HALF = new BigDecimal("1.5");
+    private static final BigDecimal MAX_INT = BigDecimal.valueOf(Integer.MAX_VALUE);
+    private static final int GUARD_DIGITS = 3;
+    /**
+     * A double estimate of a square root is good for this many digits.
+     */
+    private static final int ESTIMATE_DIGITS = 15;
+
+    private Powers() {
+    }
+
+    /**
+     * @param mathContext the precision of the result, {@code null} or a precision of 0 for exact results.
+     * @return {@code base} raised to the power of {@code exponent}.
+     * @throws ArithmeticException if zero is raised to a negative power, a negative number to a fractional power
+     *                             or if the result is out of range.
+     */
+    public static BigDecimal pow(BigDecimal base, BigDecimal exponent, MathContext mathContext) {
+        final boolean exact = mathContext == null || mathContext.getPrecision() == 0;
+        final var context = exact ? DEFAULT_CONTEXT : mathContext;
+        if (isInteger(exponent) && exponent.abs().compareTo(MAX_INT) > 0) {
+            // too many multiplications to square, but the sign of the result still follows the parity
+            final var magnitude = powFractional(base.abs(), exponent, context);
+            return base.signum() < 0 && isOdd(exponent) ? magnitude.negate() : magnitude;
+        }
+        if (isInteger(exponent)) {
+            final int n = exponent.intValueExact();
+            // the exact result has at most as many digits as the base times the exponent
+            if (exact && (long) base.stripTrailingZeros().precision() * Math.abs(n) <= MAX_EXACT_DIGITS) {
+                if (n >= 0) {
+                    return base.pow(n);
+                }
+                try {
+                    return BigDecimal.ONE.divide(base.pow(-n));
+                } catch (ArithmeticException nonTerminating) {
+                    return powBySquaring(base, n, context);
+                }
+            }
+            return powBySquaring(base, n, context);
+        }
+        if (exponent.compareTo(HALF) == 0) {
+            return sqrt(base, mathContext);
+        }
+        return powFractional(base, exponent, context);
+    }
+
+    /**
+     * @param mathContext the precision of the result, {@code null} or a precision of 0 for exact results.
+     * @return the square root of {@code value}.
+     * @throws ArithmeticException if {@code value} is negative.
+     */
+    public static BigDecimal sqrt(BigDecimal value, MathContext mathContext) {
+        final boolean exact = mathContext == null || mathContext.getPrecision() == 0;
+        final var context = exact ? DEFAULT_CONTEXT : mathContext;
+        if (value.signum() < 0) {
+            throw new ArithmeticException("Square root of a negative number");
+        }
+        if (value.signum() == 0) {
+            return BigDecimal.ZERO;
+        }
+        // value = r * 10^(2k) with 1 <= r < 100, so the estimate fits a double whatever the magnitude of value
+        final int k = Math.toIntExact(Math.floorDiv(value.precision() - (long) value.scale() - 1, 2));
+        final double r = value.scaleByPowerOfTen(-2 * k).doubleValue();
+        final var working = new MathContext(context.getPrecision() + GUARD_DIGITS, RoundingMode.HALF_EVEN);
+        var root = BigDecimal.valueOf(Math.sqrt(r)).scaleByPowerOfTen(k);
+        // every iteration doubles the number of correct digits
+        int correct = ESTIMATE_DIGITS;
+        do {
+            root = root.add(value.divide(root, working)).divide(TWO, working);
+            correct *= 2;
+        } while (correct < working.getPrecision());
+        root = root.round(context);
+        if (exact && root.multiply(root).compareTo(value) == 0) {
+            root = root.stripTrailingZeros();
+            return root.scale() < 0 ? root.setScale(0) : root;
+        }
+        return root;
+    }
+
+    private static boolean isInteger(BigDecimal value) {
+        return value.signum() == 0 || value.scale() <= 0 || value.stripTrailingZeros().scale() <= 0;
+    }
+
+    /**
+     * @param value an integer
+     */
+    private static boolean isOdd(BigDecimal value) {
+        final var stripped = value.stripTrailingZeros();
+        // a negative scale is a multiple of ten
+        return stripped.scale() == 0 && stripped.unscaledValue().testBit(0);
+    }
+
+    private static BigDecimal powBySquaring(BigDecimal base, int n, MathContext mathContext) {
+        if (n == 0) {
+            return BigDecimal.ONE;
+        }
+        long remaining = Math.abs((long) n);
+        // every multiplication may lose half a unit in the last place, the guard digits absorb them
+        final var working = new MathContext(mathContext.getPrecision() + digits(remaining) + GUARD_DIGITS,
+                RoundingMode.HALF_EVEN);
+        BigDecimal result = null;
+        var square = base.round(working);
+        while (true) {
+            if ((remaining & 1) == 1) {
+                result = result == null ? square : result.multiply(square, working);
+            }
+            remaining >>= 1;
+            if (remaining == 0) {
+                break;
+            }
+            square = square.multiply(square, working);
+        }
+        if (n < 0) {
+            result = BigDecimal.ONE.divide(result, working);
+        }
+        return result.round(mathContext);
+    }
+
+    private static BigDecimal powFractional(BigDecimal base, BigDecimal exponent, MathContext mathContext) {
+        if (base.signum() == 0) {
+            if (exponent.signum() > 0) {
+                return BigDecimal.ZERO;
+            }
+            throw new ArithmeticException("Division by zero");
+        }
+        if (base.signum() < 0) {
+            throw new ArithmeticException("Fractional power of a negative number");
+        }
+        if (base.compareTo(BigDecimal.ONE) == 0) {
+            return BigDecimal.ONE;
+        }
+        // the error of ln(base) is multiplied by the exponent and the error of the product is the relative error
+        // of the result, so the logarithm needs as many more digits as the integer part of the product has
+        final double magnitude = Math.abs(exponent.doubleValue() * estimateLn(base));
+        if (!(magnitude < Integer.MAX_VALUE)) {
+            throw new ArithmeticException("Power out of range");
+        }
+        final var working = new MathContext(mathContext.getPrecision() + digits((long) magnitude) + GUARD_DIGITS,
+                RoundingMode.HALF_EVEN);
+        return exp(exponent.multiply(ln(base, working), working), working).round(mathContext);
+    }
+
+    /**
+     * @param value a positive number
+     */
+    private static BigDecimal ln(BigDecimal value, MathContext mathContext) {
+        // value = r * 10^e with 1 <= r < 10, r is further halved until it is close to one
+        final int e = Math.toIntExact(value.precision() - (long) value.scale() - 1);
+        final var working = new MathContext(mathContext.getPrecision() + digits(Math.abs((long) e)) + GUARD_DIGITS,
+                RoundingMode.HALF_EVEN);
+        var r = value.scaleByPowerOfTen(-e);
+        int halvings = 0;
+        while (r.compareTo(ONE_AND_A_HALF) > 0) {
+            r = r.divide(TWO);
+            halvings++;
+        }
+        final var ln2 = lnNearOne(TWO, working);
+        var result = lnNearOne(r, working);
+        if (halvings != 0) {
+            result = result.add(ln2.multiply(BigDecimal.valueOf(halvings)), working);
+        }
+        if (e != 0) {
+            // ln(10) = 3 ln(2) + ln(1.25)
+            final var ln10 = ln2.multiply(BigDecimal.valueOf(3)).add(lnNearOne(new BigDecimal("1.25"), working), working);
+            result = result.add(ln10.multiply(BigDecimal.valueOf(e)), working);
+        }
+        return result.round(mathContext);
+    }
+
+    /**
+     * {@code ln(x) = 2 atanh((x - 1) / (x + 1))}, the series converges quickly the closer {@code x} is to one.
+     */
+    private static BigDecimal lnNearOne(BigDecimal x, MathContext mathContext) {
+        final var z = x.subtract(BigDecimal.ONE).divide(x.add(BigDecimal.ONE), mathContext);
+        final var zSquared = z.multiply(z, mathContext);
+        var sum = z;
+        var power = z;
+        for (int k = 3; ; k += 2) {
+            power = power.multiply(zSquared, mathContext);
+            final var next = sum.add(power.divide(BigDecimal.valueOf(k), mathContext), mathContext);
+            if (next.compareTo(sum) == 0) {
+                break;
+            }
+            sum = next;
+        }
+        return sum.multiply(TWO);
+    }
+
+    /**
+     * {@code exp(x) = e^n * exp(f)} with {@code n} the integer part of {@code x} and {@code |f| < 1}.
+     */
+    private static BigDecimal exp(BigDecimal x, MathContext mathContext) {
+        final var integral = x.setScale(0, RoundingMode.DOWN);
+        if (integral.abs().compareTo(MAX_INT) > 0) {
+            throw new ArithmeticException("Power out of range");
+        }
+        final int n = integral.intValueExact();
+        final var working = new MathContext(mathContext.getPrecision() + digits(Math.abs((long) n)) + GUARD_DIGITS,
+                RoundingMode.HALF_EVEN);
+        var result = expSeries(x.subtract(integral), working);
+        if (n != 0) {
+            result = result.multiply(powBySquaring(expSeries(BigDecimal.ONE, working), n, working), working);
+        }
+        return result.round(mathContext);
+    }
+
+    /**
+     * Taylor series of {@code exp(x)}, for {@code |x| <= 1}.
+     */
+    private static BigDecimal expSeries(BigDecimal x, MathContext mathContext) {
+        var sum = BigDecimal.ONE;
+        var term = BigDecimal.ONE;
+        for (int k = 1; ; k++) {
+            term = term.multiply(x, mathContext).divide(BigDecimal.valueOf(k), mathContext);
+            final var next = sum.add(term, mathContext);
+            if (next.compareTo(sum) == 0) {
+                return sum;
+            }
+            sum = next;
+        }
+    }
+
+    /**
+     * @param value a positive number
+     * @return the natural logarithm of {@code value}, good enough to size guard digits.
+     */
+    private static double estimateLn(BigDecimal value) {
+        final var unscaled = value.unscaledValue();
+        final int shift = Math.max(0, unscaled.bitLength() - 62);
+        return Math.log(unscaled.shiftRight(shift).doubleValue()) + shift * Math.log(2) - value.scale() * Math.log(10);
+    }
+
+    private static int digits(long value) {
+        return Long.toString(value).length();
+    }
+}
@@ -0,0 +1,147 @@
+package org.kurodev.calculator.maths;
+
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * {@link FormulaMetrics} that keeps counters and a latency histogram per {@link FormulaMetrics.Stage stage} in memory.
+ * <p>The histograms have one bucket per power of two: bucket {@code i} counts the durations
+ * of at least {@code 2^(i-1)} and less than {@code 2^i} nanoseconds, bucket 0 those of 0 nanoseconds.
+ * <p>Errors are counted per error constant of the {@link FormulaParser}, all other errors, e.g. those of
+ * custom operations, share a single count. So the memory used does not grow with the number of calculations,
+ * and recording only allocates when a {@link LongAdder} adds a cell for threads that contend for it.</p>
+ */
+public final class RecordingMetrics implements FormulaMetrics {
+    private static final int BUCKETS = Long.SIZE + 1;
+    private static final List<Calculation> KNOWN_ERRORS = List.of(FormulaParser.INVALID_EXPRESSION,
+            FormulaParser.UNKNOWN_VARIABLE, FormulaParser.INVALID_ASSIGNMENT, FormulaParser.ARITHMETIC_ERROR,
+            FormulaParser.CIRCULAR_DEPENDENCY);
+    private final Map<Stage, StageRecord> stages = new EnumMap<>(Stage.class);
+    /**
+     * One count per known error in the same order, followed by the count of all other errors.
+     */
+    private final LongAdder[] errors = new LongAdder[KNOWN_ERRORS.size() + 1];
+    private final LongAdder calculations = new LongAdder();
+    private final LongAdder cacheHits = new LongAdder();
+    private final LongAdder cacheMisses = new LongAdder();
+
+    public RecordingMetrics() {
+        for (Stage stage : Stage.values()) {
+            stages.put(stage, new StageRecord());
+        }
+        for (int i = 0; i < errors.length; i++) {
+            errors[i] = new LongAdder();
+        }
+    }
+
+    @Override
+    public void stageCompleted(Stage stage, long nanos) {
+        final var record = stages.get(stage);
+        record.count.increment();
+        record.totalNanos.add(nanos);
+        record.histogram.incrementAndGet(Long.SIZE - Long.numberOfLeadingZeros(Math.max(nanos, 0)));
+    }
+
+    @Override
+    public void calculationCompleted(Calculation result) {
+        calculations.increment();
+        if (result != null && result.isError()) {
+            errors[errorIndex(result)].increment();
+        }
+    }
+
+    @Override
+    public void cacheHit() {
+        cacheHits.increment();
+    }
+
+    @Override
+    public void cacheMiss() {
+        cacheMisses.increment();
+    }
+
+    /**
+     * @return how often the given stage has been completed.
+     */
+    public long getCount(Stage stage) {
+        return stages.get(stage).count.sum();
+    }
+
+    public long getTotalNanos(Stage stage) {
+        return stages.get(stage).totalNanos.sum();
+    }
+
+    /**
+     * @return a copy of the latency histogram of the given stage, see {@link RecordingMetrics}.
+     */
+    public long[] getLatencyHistogram(Stage stage) {
+        final var histogram = stages.get(stage).histogram;
+        final long[] copy = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) {
+            copy[i] = histogram.get(i);
+        }
+        return copy;
+    }
+
+    /**
+     * @return the number of completed calculations, including the failed ones.
+     */
+    public long getCalculationCount() {
+        return calculations.sum();
+    }
+
+    /**
+     * @param error an error like {@link FormulaParser#UNKNOWN_VARIABLE}.
+     * @return how many calculations resulted in the given error. Errors that are not constants of the
+     * {@link FormulaParser} are not told apart, for them this is the {@link #getOtherErrorCount() other error count}.
+     */
+    public long getErrorCount(Calculation error) {
+        return errors[errorIndex(error)].sum();
+    }
+
+    /**
+     * @return how many calculations resulted in an error that is not a constant of the {@link FormulaParser}.
+     */
+    public long getOtherErrorCount() {
+        return errors[KNOWN_ERRORS.size()].sum();
+    }
+
+    public long getCacheHitCount() {
+        return cacheHits.sum();
+    }
+
+    public long getCacheMissCount() {
+        return cacheMisses.sum();
+    }
+
+    @Override
+    public String toString() {
+        final var builder = new StringBuilder("RecordingMetrics{calculations=").append(calculations.sum());
+        for (Stage stage : Stage.values()) {
+            builder.append(", ").append(stage).append("=")
+                    .append(getCount(stage)).append("x/").append(getTotalNanos(stage)).append("ns");
+        }
+        builder.append(", errors={");
+        for (int i = 0; i < KNOWN_ERRORS.size(); i++) {
+            builder.append(KNOWN_ERRORS.get(i)).append('=').append(errors[i].sum()).append(", ");
+        }
+        return builder.append("other=").append(getOtherErrorCount()).append('}')
+                .append(", cacheHits=").append(cacheHits.sum())
+                .append(", cacheMisses=").append(cacheMisses.sum())
+                .append('}').toString();
+    }
+
+    private static int errorIndex(Calculation error) {
+        final int index = KNOWN_ERRORS.indexOf(error);
+        return index < 0 ? KNOWN_ERRORS.size() : index;
+    }
+
+    private static final class StageRecord {
+        private final LongAdder count = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final AtomicLongArray histogram = new AtomicLongArray(BUCKETS);
+    }
+}
@@ -0,0 +1,131 @@
+package org.kurodev.calculator.maths;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Evaluates postfix tokens with {@link NumericMode#BIG_DECIMAL} by splitting them into independent subexpressions
+ * that are evaluated in parallel, see {@link ExpressionParallelism}.
+ * <p>In postfix form every subexpression is a contiguous range of tokens that ends with its root,
+ * so a subexpression is evaluated by the interpreter just like a whole expression.
+ * Left operands are followed down iteratively: {@code a + b - c * d} is treated as the operands
+ * {@code a}, {@code b} and {@code c * d}, which are evaluated in groups of at least the minimum subtree size
+ * and then combined from left to right, exactly like the interpreter would.</p>
+ * <p>The tokens must not share subexpressions, temporaries cannot be split between tasks.</p>
+ */
+final class SubtreeEvaluator {
+    /**
+     * Subexpressions nested deeper than this, e.g. in {@code 1+(1+(1+...))}, are evaluated by the interpreter
+     * of the enclosing task, which does not need the call stack.
+     */
+    static final int MAX_DEPTH = 256;
+    private final PostfixToken[] tokens;
+    /**
+     * The index of the first token of the subexpression whose root is the token at the same index.
+     */
+    private final int[] starts;
+    private final MathContext mathContext;
+
+    /**
+     * @param tokens structurally valid tokens without {@link PostfixToken.Kind#STORE} and {@link PostfixToken.Kind#LOAD}.
+     */
+    SubtreeEvaluator(PostfixToken[] tokens, MathContext mathContext) {
+        this.tokens = tokens;
+        this.mathContext = mathContext;
+        this.starts = new int[tokens.length];
+        final int[] stack = new int[tokens.length];
+        int top = -1;
+        for (int i = 0; i < tokens.length; i++) {
+            switch (tokens[i].kind) {
+                case CONSTANT, VARIABLE -> stack[++top] = starts[i] = i;
+                case NEGATE -> starts[i] = stack[top];
+                case OPERATION -> starts[i] = stack[--top];
+                case STORE, LOAD -> throw new IllegalArgumentException("shared subexpressions cannot be split");
+            }
+        }
+    }
+
+    /**
+     * @param values the values of the variables, indexed by the slot of their tokens.
+     * @return the same result as {@link PostfixCalculator#evaluate(PostfixToken[], BigDecimal[], MathContext)}.
+     */
+    Calculation evaluate(BigDecimal[] values, ExpressionParallelism parallelism) {
+        for (PostfixToken token : tokens) {
+            if (token.kind == PostfixToken.Kind.VARIABLE && values[token.slot] == null) {
+                return FormulaParser.UNKNOWN_VARIABLE;
+            }
+        }
+        final int minimumSize = parallelism.getMinimumSubtreeSize();
+        return parallelism.getPool().invoke(ForkJoinTask.adapt(() -> evaluate(0, tokens.length, values, minimumSize, 0)));
+    }
+
+    private Calculation evaluate(int from, int to, BigDecimal[] values, int minimumSize, int depth) {
+        final var root = tokens[to - 1];
+        if (to - from < minimumSize || depth == MAX_DEPTH
+                || root.kind == PostfixToken.Kind.CONSTANT || root.kind == PostfixToken.Kind.VARIABLE) {
+            return computed(PostfixCalculator.evaluate(tokens, from, to, values, mathContext));
+        }
+        if (root.kind == PostfixToken.Kind.NEGATE) {
+            final var operand = evaluate(from, to - 1, values, minimumSize, depth + 1);
+            if (operand.isError()) {
+                return operand;
+            }
+            return new Calculation(operand.getResult().negate(), RoundingMode.HALF_UP, mathContext);
+        }
+        //the operations of the left spine, outermost first, and where the innermost left operand ends
+        final List<Integer> spine = new ArrayList<>();
+        int end = to;
+        while (end - from >= minimumSize && tokens[end - 1].kind == PostfixToken.Kind.OPERATION) {
+            spine.add(end - 1);
+            end = starts[end - 2];
+        }
+        final int operands = spine.size() + 1;
+        final int[] operandFrom = new int[operands];
+        final int[] operandTo = new int[operands];
+        operandFrom[0] = from;
+        operandTo[0] = end;
+        for (int i = 1; i < operands; i++) {
+            final int operation = spine.get(operands - 1 - i);
+            operandFrom[i] = starts[operation - 1];
+            operandTo[i] = operation;
+        }
+        final var results = new Calculation[operands];
+        final List<ForkJoinTask<?>> tasks = new ArrayList<>();
+        int first = 0;
+        int size = 0;
+        for (int i = 0; i < operands; i++) {
+            size += operandTo[i] - operandFrom[i];
+            if (size >= minimumSize || i == operands - 1) {
+                final int groupFrom = first;
+                final int groupTo = i + 1;
+                tasks.add(ForkJoinTask.adapt(() -> {
+                    for (int j = groupFrom; j < groupTo; j++) {
+                        results[j] = evaluate(operandFrom[j], operandTo[j], values, minimumSize, depth + 1);
+                    }
+                }));
+                first = groupTo;
+                size = 0;
+            }
+        }
+        ForkJoinTask.invokeAll(tasks);
+        var result = results[0];
+        for (int i = 1; i < operands; i++) {
+            result = tokens[operandTo[i]].operation.conclude(result, results[i]);
+        }
+        return computed(result);
+    }
+
+    /**
+     * Computes the result of a calculation on the current task instead of whichever thread reads it first.
+     * A calculation that fails is handed out as it is, so it fails wherever its result is read,
+     * just like on a single thread.
+     */
+    private static Calculation computed(Calculation calculation) {
+        calculation.getResultOrDefault(null);
+        return calculation;
+    }
+}
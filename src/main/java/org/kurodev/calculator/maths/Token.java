@@ -0,0 +1,79 @@
+package org.kurodev.calculator.maths;
+
+import java.math.BigDecimal;
+
+/**
+ * A typed element of an infix formula, as emitted by the {@link Lexer}.
+ */
+final class Token {
+    final Type type;
+    /**
+     * Offset of the first character of this token in the formula.
+     */
+    final int position;
+    final BigDecimal number;
+    final String identifier;
+    final char operator;
+
+    private Token(Type type, int position, BigDecimal number, String identifier, char operator) {
+        this.type = type;
+        this.position = position;
+        this.number = number;
+        this.identifier = identifier;
+        this.operator = operator;
+    }
+
+    static Token number(BigDecimal number, int position) {
+        return new Token(Type.NUMBER, position, number, null, '\0');
+    }
+
+    static Token identifier(String identifier, int position) {
+        return new Token(Type.IDENTIFIER, position, null, identifier, '\0');
+    }
+
+    static Token operator(char operator, int position) {
+        return new Token(Type.OPERATOR, position, null, null, operator);
+    }
+
+    static Token of(Type type, int position) {
+        return new Token(type, position, null, null, '\0');
+    }
+
+    /**
+     * @return {@code true} if an operand can directly follow this token, which makes it an implicit multiplication.
+     */
+    boolean endsOperand() {
+        return type == Type.NUMBER || type == Type.IDENTIFIER || type == Type.RIGHT_PARENTHESIS;
+    }
+
+    /**
+     * @return {@code true} if this token can only appear where an operand is expected.
+     */
+    boolean startsOperand() {
+        return type == Type.NUMBER || type == Type.IDENTIFIER || type == Type.LEFT_PARENTHESIS;
+    }
+
+    @Override
+    public String toString() {
+        return switch (type) {
+            case NUMBER -> number.toPlainString();
+            case IDENTIFIER -> identifier;
+            case OPERATOR -> String.valueOf(operator);
+            case NEGATION -> "-";
+            case LEFT_PARENTHESIS -> "(";
+            case RIGHT_PARENTHESIS -> ")";
+        };
+    }
+
+    enum Type {
+        NUMBER,
+        IDENTIFIER,
+        OPERATOR,
+        /**
+         * A minus sign in front of an operand, e.g. {@code -x} or {@code -(2+3)}.
+         */
+        NEGATION,
+        LEFT_PARENTHESIS,
+        RIGHT_PARENTHESIS
+    }
+}
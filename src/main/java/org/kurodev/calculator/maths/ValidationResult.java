@@ -0,0 +1,99 @@
+package org.kurodev.calculator.maths;
+
+/**
+ * The outcome of checking the syntax of a formula, see {@link FormulaParser#validate(String)}.
+ * <p>An invalid formula reports the first problem found: what kind of problem it is,
+ * where it is and the token that caused it. Validation never throws, whatever the input,
+ * so it is safe to run on untrusted formulas before they are calculated.</p>
+ * <p>Variables are not checked, a valid formula may still calculate to {@link FormulaParser#UNKNOWN_VARIABLE}.</p>
+ */
+public final class ValidationResult {
+    public static final ValidationResult VALID = new ValidationResult(Kind.VALID, -1, null);
+
+    private final Kind kind;
+    private final int offset;
+    private final String token;
+
+    private ValidationResult(Kind kind, int offset, String token) {
+        this.kind = kind;
+        this.offset = offset;
+        this.token = token;
+    }
+
+    static ValidationResult failed(Kind kind, int offset, String token) {
+        return new ValidationResult(kind, offset, token);
+    }
+
+    public boolean isValid() {
+        return kind == Kind.VALID;
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    /**
+     * @return the offset of the first character of the offending token in the formula,
+     * the length of the formula if it ended too early and -1 if it is valid.
+     */
+    public int getOffset() {
+        return offset;
+    }
+
+    /**
+     * @return the offending token, an empty string if the formula ended too early
+     * and {@code null} if it is valid.
+     */
+    public String getToken() {
+        return token;
+    }
+
+    /**
+     * @return the error {@link FormulaParser#calculate(String)} returns for this formula,
+     * {@code null} if it is valid.
+     */
+    public Calculation getError() {
+        return switch (kind) {
+            case VALID -> null;
+            case INVALID_ASSIGNMENT -> FormulaParser.INVALID_ASSIGNMENT;
+            default -> FormulaParser.INVALID_EXPRESSION;
+        };
+    }
+
+    @Override
+    public String toString() {
+        if (isValid()) {
+            return "ValidationResult{VALID}";
+        }
+        return "ValidationResult{" +
+                "kind=" + kind +
+                ", offset=" + offset +
+                ", token='" + token + '\'' +
+                '}';
+    }
+
+    public enum Kind {
+        VALID,
+        /**
+         * An operator, a closing parenthesis or the end of the formula where an operand is expected,
+         * e.g. {@code 3 * / 2} or {@code 3 +}.
+         */
+        MISSING_OPERAND,
+        /**
+         * An operand where an operator is expected.
+         */
+        UNEXPECTED_OPERAND,
+        /**
+         * A character that is not a supported operation, see {@link FormulaParser#getOperations()}.
+         */
+        UNKNOWN_OPERATOR,
+        /**
+         * A closing parenthesis without an opening one or an opening parenthesis that is never closed.
+         */
+        UNMATCHED_PARENTHESIS,
+        /**
+         * More than one {@code =}, a variable name that does not only consist of letters or nothing to assign.
+         */
+        INVALID_ASSIGNMENT
+    }
+}
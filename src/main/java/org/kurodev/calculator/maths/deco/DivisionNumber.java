@@ -10,7 +10,7 @@ public class DivisionNumber extends NumberDecorator {
     }
 
     @Override
-    public BigDecimal getResult() {
-        return parent.getResult().divide(super.getResult(),roundingMode);
+    protected BigDecimal apply(BigDecimal parentResult) {
+        return mathContext == null ? parentResult.divide(value, roundingMode) : parentResult.divide(value, mathContext);
     }
 }
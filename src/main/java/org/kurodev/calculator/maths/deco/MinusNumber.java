@@ -10,8 +10,7 @@ public strictfp class MinusNumber extends NumberDecorator {
     }
 
     @Override
-    public BigDecimal getResult() {
-        var parentResult = parent.getResult();
-        return parentResult.subtract(super.getResult());
+    protected BigDecimal apply(BigDecimal parentResult) {
+        return mathContext == null ? parentResult.subtract(value) : parentResult.subtract(value, mathContext);
     }
 }
@@ -10,7 +10,7 @@ public class MultiplyNumber extends NumberDecorator {
     }
 
     @Override
-    public BigDecimal getResult() {
-        return parent.getResult().multiply(super.getResult());
+    protected BigDecimal apply(BigDecimal parentResult) {
+        return mathContext == null ? parentResult.multiply(value) : parentResult.multiply(value, mathContext);
     }
 }
@@ -3,12 +3,80 @@ package org.kurodev.calculator.maths.deco;
 import org.kurodev.calculator.maths.Calculation;
 
 import java.math.BigDecimal;
+import java.util.ArrayDeque;
 
+/**
+ * Applies an operation with {@link #value} to the result of its parent calculation.
+ * <p>Subclasses implement the operation in {@link #apply(BigDecimal)}. The result is computed on the first call
+ * to {@link #getResult()} and remembered afterwards, which is safe because decorators are immutable.
+ * Chains of decorators are evaluated iteratively, so even chains with thousands of operations
+ * neither overflow the stack nor compute anything twice.</p>
+ * <p>Subclasses may still override {@link #getResult()} instead, as before {@link #apply(BigDecimal)} existed.
+ * Their {@code super.getResult()} is {@link #value}, and they are computed by their own method
+ * every time their result is read, chains of them recursively.</p>
+ */
 public class NumberDecorator extends Calculation {
     protected final Calculation parent;
+    /**
+     * {@code false} for decorator classes that override {@link #getResult()} instead of implementing {@link #apply}.
+     */
+    private static final ClassValue<Boolean> USES_APPLY = new ClassValue<>() {
+        @Override
+        protected Boolean computeValue(Class<?> type) {
+            try {
+                return type.getMethod("getResult").getDeclaringClass() == NumberDecorator.class;
+            } catch (NoSuchMethodException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    };
+    private volatile BigDecimal result;
 
     public NumberDecorator(BigDecimal value, Calculation parent) {
-        super(value, parent.getRoundingMode());
+        super(value, parent.getRoundingMode(), parent.getMathContext());
         this.parent = parent;
     }
+
+    @Override
+    public BigDecimal getResult() {
+        if (!USES_APPLY.get(getClass())) {
+            //super.getResult() of a subclass that computes its result itself
+            return value;
+        }
+        var result = this.result;
+        if (result == null) {
+            result = evaluateChain();
+        }
+        return result;
+    }
+
+    @Override
+    protected final Calculation getParent() {
+        return parent;
+    }
+
+    /**
+     * @param parentResult the result of {@link #parent}
+     * @return the result of this calculation
+     */
+    protected BigDecimal apply(BigDecimal parentResult) {
+        return value;
+    }
+
+    private BigDecimal evaluateChain() {
+        final var chain = new ArrayDeque<NumberDecorator>();
+        Calculation current = this;
+        while (current instanceof NumberDecorator decorator && decorator.result == null
+                && USES_APPLY.get(decorator.getClass())) {
+            chain.push(decorator);
+            current = decorator.parent;
+        }
+        BigDecimal result = current.getResult();
+        while (!chain.isEmpty()) {
+            var decorator = chain.pop();
+            result = decorator.apply(result);
+            decorator.result = result;
+        }
+        return result;
+    }
 }
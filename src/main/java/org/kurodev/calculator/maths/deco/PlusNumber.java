@@ -11,7 +11,7 @@ public strictfp class PlusNumber extends NumberDecorator {
     }
 
     @Override
-    public BigDecimal getResult() {
-        return parent.getResult().add(super.getResult());
+    protected BigDecimal apply(BigDecimal parentResult) {
+        return mathContext == null ? parentResult.add(value) : parentResult.add(value, mathContext);
     }
 }
@@ -1,6 +1,7 @@
 package org.kurodev.calculator.maths.deco;
 
 import org.kurodev.calculator.maths.Calculation;
+import org.kurodev.calculator.maths.Powers;
 
 import java.math.BigDecimal;
 
@@ -10,7 +11,7 @@ public class PowNumber extends NumberDecorator {
     }
 
     @Override
-    public BigDecimal getResult() {
-        return parent.getResult().pow(value.intValue());
+    protected BigDecimal apply(BigDecimal parentResult) {
+        return Powers.pow(parentResult, value, mathContext);
     }
 }
@@ -0,0 +1,22 @@
+package org.kurodev.calculator.maths.deco;
+
+import org.kurodev.calculator.maths.Calculation;
+import org.kurodev.calculator.maths.Powers;
+
+import java.math.BigDecimal;
+
+/**
+ * The square root of its parent, {@link #value} is the degree of the root.
+ */
+public class SqrtNumber extends NumberDecorator {
+    private static final BigDecimal DEGREE = BigDecimal.valueOf(2);
+
+    public SqrtNumber(Calculation parent) {
+        super(DEGREE, parent);
+    }
+
+    @Override
+    protected BigDecimal apply(BigDecimal parentResult) {
+        return Powers.sqrt(parentResult, mathContext);
+    }
+}
@@ -0,0 +1,146 @@
+package parsing;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.kurodev.calculator.maths.BatchParallelism;
+import org.kurodev.calculator.maths.BatchResult;
+import org.kurodev.calculator.maths.Calculation;
+import org.kurodev.calculator.maths.FormulaParser;
+import org.kurodev.calculator.maths.Operation;
+import org.kurodev.calculator.maths.OperatorRegistry;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.*;
+
+public class BatchTest {
+    private FormulaParser parser;
+
+    @Before
+    public void prepare() {
+        FormulaParser.restoreDefaultOperations();
+        parser = new FormulaParser();
+    }
+
+    @Test
+    public void testDoubleColumns() {
+        double[] x = {1, 2, 3, 4};
+        double[] rate = {0.5, 0.25, 2, 1};
+        BatchResult result = parser.calculateBatch("x * rate + 1", Map.of("x", x, "rate", rate));
+        assertEquals(4, result.size());
+        assertEquals(0, result.getErrorCount());
+        for (int row = 0; row < x.length; row++) {
+            assertEquals(x[row] * rate[row] + 1, result.getDouble(row), 0d);
+        }
+    }
+
+    @Test
+    public void testRowErrorsDoNotThrow() {
+        BatchResult result = parser.calculateBatch("1 / x", Map.of("x", new double[]{2, 0, 4}));
+        assertEquals(1, result.getErrorCount());
+        assertFalse(result.isError(0));
+        assertSame(FormulaParser.ARITHMETIC_ERROR, result.getError(1));
+        assertTrue(Double.isNaN(result.getDouble(1)));
+        assertEquals(0.25, result.getDouble(2), 0d);
+    }
+
+    @Test
+    public void testBigDecimalColumns() {
+        BigDecimal[] x = {BigDecimal.ONE, null, BigDecimal.ZERO, BigDecimal.TEN};
+        BatchResult result = parser.calculateBigDecimalBatch("20 / x - 1", Map.of("x", x));
+        assertEquals("19", result.getBigDecimal(0).toPlainString());
+        assertSame(FormulaParser.UNKNOWN_VARIABLE, result.getError(1));
+        assertSame(FormulaParser.ARITHMETIC_ERROR, result.getError(2));
+        assertEquals("1", result.get(3).toString());
+    }
+
+    @Test
+    public void testWholeBatchErrors() {
+        Map<String, double[]> columns = Map.of("x", new double[3]);
+        BatchResult unknown = parser.calculateBatch("x + y", columns);
+        assertEquals(3, unknown.getErrorCount());
+        assertSame(FormulaParser.UNKNOWN_VARIABLE, unknown.getError(2));
+        BatchResult invalid = parser.calculateBatch("x +", columns);
+        assertSame(FormulaParser.INVALID_EXPRESSION, invalid.getError(0));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testColumnsOfDifferentLength() {
+        parser.calculateBatch("x + y", Map.of("x", new double[3], "y", new double[2]));
+    }
+
+    @Test
+    public void testParallelMatchesSequential() {
+        int rows = 100_000;
+        double[] x = new double[rows];
+        double[] y = new double[rows];
+        for (int row = 0; row < rows; row++) {
+            x[row] = row;
+            y[row] = row % 7;
+        }
+        Map<String, double[]> columns = Map.of("x", x, "y", y);
+        String formula = "(x - 3) / y + x^2";
+        BatchResult sequential = parser.calculateBatch(formula, columns);
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            BatchResult parallel = parser.calculateBatch(formula, columns,
+                    BatchParallelism.of(pool).withMinimumChunkSize(1000));
+            assertEquals(sequential.getErrorCount(), parallel.getErrorCount());
+            for (int row = 0; row < rows; row++) {
+                assertEquals(sequential.isError(row), parallel.isError(row));
+                assertEquals(sequential.getDouble(row), parallel.getDouble(row), 0d);
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void testParallelDoesNotTouchParserVariables() {
+        parser.getVariables().put("x", BigDecimal.ONE);
+        Map<String, BigDecimal> before = new HashMap<>(parser.getVariables());
+        BigDecimal[] x = new BigDecimal[10_000];
+        for (int row = 0; row < x.length; row++) {
+            x[row] = BigDecimal.valueOf(row);
+        }
+        BatchResult result = parser.calculateBigDecimalBatch("x * 2", Map.of("x", x),
+                BatchParallelism.commonPool().withMinimumChunkSize(128));
+        assertEquals(before, parser.getVariables());
+        assertEquals(0, result.getErrorCount());
+        assertEquals(BigDecimal.valueOf(19_998), result.getBigDecimal(9_999));
+    }
+
+    @Test
+    public void testOperationsThatAreNotThreadSafeStayOnTheCallingThread() {
+        final Set<Thread> threads = ConcurrentHashMap.newKeySet();
+        final var custom = new FormulaParser(OperatorRegistry.defaults().withOperation(new Operation() {
+            @Override
+            public Calculation conclude(Calculation a, Calculation b) {
+                threads.add(Thread.currentThread());
+                return a.plus(b);
+            }
+
+            @Override
+            public char getOperator() {
+                return '&';
+            }
+        }));
+        final var x = new BigDecimal[10_000];
+        Arrays.fill(x, BigDecimal.ONE);
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            BatchResult result = custom.calculateBigDecimalBatch("x & 2", Map.of("x", x),
+                    BatchParallelism.of(pool).withMinimumChunkSize(16));
+            assertEquals(BigDecimal.valueOf(3), result.getBigDecimal(9_999));
+            assertEquals(Set.of(Thread.currentThread()), threads);
+        } finally {
+            pool.shutdown();
+        }
+    }
+}
@@ -2,6 +2,9 @@ package parsing;
 
 import org.junit.Test;
 import org.kurodev.calculator.maths.Calculation;
+import org.kurodev.calculator.maths.deco.NumberDecorator;
+
+import java.math.BigDecimal;
 
 import static org.junit.Assert.assertEquals;
 
@@ -9,6 +12,32 @@ public class CalculatorTest {
 
 
 
+    @Test
+    public void testResultOrDefault() {
+        final var error = Calculation.errorInstance("x");
+        assertEquals(BigDecimal.TEN, error.getResultOrDefault(BigDecimal.TEN));
+        assertEquals(BigDecimal.TEN, error.plus(BigDecimal.ONE).plus(2).getResultOrDefault(BigDecimal.TEN));
+        assertEquals(BigDecimal.TEN, new Calculation(1).divideBy(BigDecimal.ZERO).getResultOrDefault(BigDecimal.TEN));
+        assertEquals(3, new Calculation(1).plus(2).getResultOrDefault(null).intValue());
+    }
+
+    @Test
+    public void testDecoratorsOverridingGetResult() {
+        class Doubled extends NumberDecorator {
+            Doubled(Calculation parent) {
+                super(BigDecimal.valueOf(2), parent);
+            }
+
+            @Override
+            public BigDecimal getResult() {
+                return parent.getResult().multiply(super.getResult());
+            }
+        }
+        final var result = new Doubled(new Calculation(1).plus(2)).plus(1).multiplyWith(BigDecimal.TEN);
+        assertEquals(70, result.getResult().intValue());
+        assertEquals(14, new Doubled(new Doubled(new Calculation(3).plus(0.5))).getResult().intValue());
+    }
+
     @Test
     public void testAddition() {
         Calculation calc = new Calculation();
@@ -41,6 +70,23 @@ public class CalculatorTest {
     public void testSquare() {
         Calculation calc = new Calculation();
         final var result = calc.plus(15).minus(10);
-        assertEquals(25, result.sqrt().getResult().intValue());
+        assertEquals(25, result.pow(2).getResult().intValue());
+    }
+
+    @Test
+    public void testSquareRoot() {
+        Calculation calc = new Calculation();
+        final var result = calc.plus(15).plus(10);
+        assertEquals("5", result.sqrt().toString());
+    }
+
+    @Test
+    public void testLongChainDoesNotOverflow() {
+        Calculation calc = new Calculation();
+        for (int i = 0; i < 100_000; i++) {
+            calc = calc.plus(1);
+        }
+        assertEquals(100_000, calc.getResult().intValue());
+        assertEquals(calc.getResult(), calc.getResult());
     }
 }
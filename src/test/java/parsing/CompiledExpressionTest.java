@@ -0,0 +1,123 @@
+package parsing;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.kurodev.calculator.maths.CompiledExpression;
+import org.kurodev.calculator.maths.FormulaParser;
+
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class CompiledExpressionTest {
+    private FormulaParser parser;
+
+    @Before
+    public void prepare() {
+        parser = new FormulaParser();
+        FormulaParser.restoreDefaultOperations();
+    }
+
+    @Test
+    public void testCompileOnceEvaluateMany() {
+        CompiledExpression expression = parser.compile("x^2-(10+x)");
+        assertTrue(expression.isValid());
+        Map<String, BigDecimal> variables = new HashMap<>();
+        for (int i = -5; i <= 5; i++) {
+            variables.put("x", BigDecimal.valueOf(i));
+            assertEquals((int) Math.pow(i, 2) - (10 + i), expression.evaluate(variables).getResult().intValue());
+        }
+    }
+
+    @Test
+    public void testVariableNames() {
+        CompiledExpression expression = parser.compile("2x + y * x");
+        assertEquals(List.of("x", "y"), List.copyOf(expression.getVariableNames()));
+    }
+
+    @Test
+    public void testEvaluateBySlot() {
+        CompiledExpression expression = parser.compile("y * 10 + x");
+        assertEquals(List.of("y", "x"), expression.getPostfix().getVariableNames());
+        assertEquals(23, expression.evaluate(BigDecimal.valueOf(2), BigDecimal.valueOf(3)).getResult().intValue());
+        assertSame(FormulaParser.UNKNOWN_VARIABLE, expression.evaluate(BigDecimal.ONE, null));
+        try {
+            expression.evaluate(BigDecimal.ONE);
+            fail("one value for two variables");
+        } catch (IllegalArgumentException expected) {
+        }
+    }
+
+    @Test
+    public void testAssignmentsKeepExactValues() {
+        parser.setVariable("a", new BigDecimal("-1E+500"));
+        assertNull(parser.calculate("b = 2a"));
+        assertEquals(new BigDecimal("-2E+500"), parser.getVariables().get("b"));
+        assertEquals(0, new BigDecimal("-1E+500").compareTo(parser.calculate("a").getResult()));
+    }
+
+    @Test
+    public void testUnknownVariable() {
+        CompiledExpression expression = parser.compile("a + 1");
+        assertTrue(expression.isValid());
+        assertSame(FormulaParser.UNKNOWN_VARIABLE, expression.evaluate());
+    }
+
+    @Test
+    public void testInvalidExpression() {
+        CompiledExpression expression = parser.compile("6 + 2 +");
+        assertFalse(expression.isValid());
+        assertSame(FormulaParser.INVALID_EXPRESSION, expression.evaluate());
+    }
+
+    @Test
+    public void testNegativeVariable() {
+        CompiledExpression expression = parser.compile("3 * -x");
+        assertEquals(-12, expression.evaluate(Map.of("x", BigDecimal.valueOf(4))).getResult().intValue());
+    }
+
+    @Test
+    public void testSameResultAsCalculate() {
+        String formula = "1 (2+2) 1 (2+2) (2+2)";
+        assertEquals(parser.calculate(formula), parser.compile(formula).evaluate());
+    }
+
+    @Test
+    public void testPostfixDebugRendering() {
+        assertEquals("3 4 2 * x (-) * +", parser.compile("3 + 4 * 2 * -x").getPostfix().toString());
+    }
+
+    @Test
+    public void testConstantFolding() {
+        CompiledExpression expression = parser.compile("(3*4+2)^2 * x - -(1/0)");
+        assertEquals("196 x * 1 0 / +", expression.getOptimizedPostfix().toString());
+        assertEquals("3 x *", parser.compile("-(1-4) * x").getOptimizedPostfix().toString());
+        assertEquals(392, parser.compile("(3*4+2)^2 * x").evaluate(Map.of("x", BigDecimal.valueOf(2)))
+                .getResult().intValue());
+    }
+
+    @Test
+    public void testIdentities() {
+        assertEquals("x", parser.compile("0 + x * 1 ^ 1 - 0").getOptimizedPostfix().toString());
+        assertEquals("x 1.0 *", parser.compile("x * 1.0").getOptimizedPostfix().toString());
+        assertEquals("5.0", parser.compile("x * 1").evaluate(Map.of("x", new BigDecimal("5.0"))).toString());
+        assertEquals("2 * 3", "6", parser.compile("2 * 3").evaluate().toString());
+    }
+
+    @Test
+    public void testCommonSubexpressions() {
+        CompiledExpression expression = parser.compile("(r*t+f) * 2 + (r*t+f) / (r*t)");
+        assertEquals("r t * $0= f + $1= 2 * $1 $0 / +", expression.getOptimizedPostfix().toString());
+        assertEquals(8, expression.getDeduplicatedNodeCount());
+        Map<String, BigDecimal> variables = Map.of("r", BigDecimal.valueOf(2), "t", BigDecimal.valueOf(3),
+                "f", BigDecimal.valueOf(6));
+        assertEquals(26, expression.evaluate(variables).getResult().intValue());
+        assertEquals(26, expression.evaluateDouble(variables), 0);
+        assertEquals(26, expression.evaluateBatch(Map.of("r", new double[]{2}, "t", new double[]{3},
+                "f", new double[]{6})).getDouble(0), 0);
+        assertEquals(0, parser.compile("x * x + 1").getDeduplicatedNodeCount());
+    }
+}
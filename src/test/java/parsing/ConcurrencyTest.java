@@ -0,0 +1,129 @@
+package parsing;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.kurodev.calculator.maths.Calculation;
+import org.kurodev.calculator.maths.FormulaParser;
+import org.kurodev.calculator.maths.Operation;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class ConcurrencyTest {
+    private static final int THREADS = 32;
+    private static final int ITERATIONS = 500;
+    private FormulaParser parser;
+
+    @Before
+    public void prepare() {
+        FormulaParser.restoreDefaultOperations();
+        parser = new FormulaParser();
+        parser.enableCache(16);
+    }
+
+    @After
+    public void cleanup() {
+        FormulaParser.restoreDefaultOperations();
+    }
+
+    private static Operation plus(char operator) {
+        return new Operation() {
+            @Override
+            public Calculation conclude(Calculation a, Calculation b) {
+                return a.plus(b);
+            }
+
+            @Override
+            public char getOperator() {
+                return operator;
+            }
+        };
+    }
+
+    /**
+     * @return a variable name that only consists of letters and is unique per thread.
+     */
+    private static String variableName(int thread) {
+        return "v" + (char) ('a' + thread / 26) + (char) ('a' + thread % 26);
+    }
+
+    @Test
+    public void testSharedParserUnderContention() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            final int thread = t;
+            futures.add(executor.submit(() -> {
+                start.await();
+                final char operator = (char) ('\u2200' + thread);
+                final String name = variableName(thread);
+                assertTrue(FormulaParser.addOperation(plus(operator)));
+                for (int i = 0; i < ITERATIONS; i++) {
+                    assertNull(parser.calculate(name + " = " + i));
+                    assertEquals(i + 3, parser.calculate(name + operator + "3").getResult().intValue());
+                    assertEquals(2 * i, parser.calculate("2" + name).getResult().intValue());
+                    Map<String, BigDecimal> scope = new HashMap<>();
+                    scope.put("x", BigDecimal.valueOf(i));
+                    assertNull(parser.calculate("y = x * 2", scope));
+                    assertEquals(3 * i, parser.calculate("x + y", scope).getResult().intValue());
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(1, TimeUnit.MINUTES));
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        for (int t = 0; t < THREADS; t++) {
+            final char operator = (char) ('\u2200' + t);
+            assertEquals("lost operation " + t, 3, parser.calculate("1" + operator + "2").getResult().intValue());
+            assertEquals(ITERATIONS - 1, parser.getVariables().get(variableName(t)).intValue());
+        }
+        assertFalse(parser.getVariables().containsKey("x"));
+        assertFalse(parser.getVariables().containsKey("y"));
+    }
+
+    @Test
+    public void testConcurrentAddAndRemoveDoNotLoseUpdates() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            final char operator = (char) ('\u2300' + t);
+            futures.add(executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < ITERATIONS; i++) {
+                    assertTrue(FormulaParser.addOperation(plus(operator)));
+                    assertEquals(5, parser.calculate("2" + operator + "3").getResult().intValue());
+                    FormulaParser.removeOperation(plus(operator));
+                    assertTrue(parser.calculate("2" + operator + "3").isError());
+                }
+                return FormulaParser.addOperation(plus(operator));
+            }));
+        }
+        start.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(1, TimeUnit.MINUTES));
+        for (Future<?> future : futures) {
+            assertEquals(Boolean.TRUE, future.get());
+        }
+        for (int t = 0; t < THREADS; t++) {
+            final char operator = (char) ('\u2300' + t);
+            assertEquals(5, parser.calculate("2" + operator + "3").getResult().intValue());
+        }
+    }
+}
@@ -3,10 +3,19 @@ package parsing;
 import org.junit.Before;
 import org.junit.Test;
 import org.kurodev.calculator.maths.Calculation;
+import org.kurodev.calculator.maths.DefaultOperations;
 import org.kurodev.calculator.maths.FormulaParser;
+import org.kurodev.calculator.maths.NumericMode;
 import org.kurodev.calculator.maths.Operation;
+import org.kurodev.calculator.maths.OperatorRegistry;
+import org.kurodev.calculator.maths.ValidationResult;
+
+import java.math.BigDecimal;
+import java.util.Map;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
 
 public class CustomOperationTest {
     private FormulaParser parser;
@@ -36,6 +45,49 @@ public class CustomOperationTest {
         assertEquals(expected, parser.calculate(formula).getResult().intValue());
     }
 
+    @Test
+    public void errorsOfCustomOperationsInDoubleMode() {
+        final var failing = new FormulaParser(OperatorRegistry.defaults().withOperation(new Operation() {
+            @Override
+            public Calculation conclude(Calculation a, Calculation b) {
+                return Calculation.errorInstance("unsupported");
+            }
+
+            @Override
+            public char getOperator() {
+                return '#';
+            }
+        }));
+        failing.setNumericMode(NumericMode.DOUBLE);
+        assertSame(FormulaParser.ARITHMETIC_ERROR, failing.calculate("1#2"));
+        final var batch = failing.calculateBatch("x#2", Map.of("x", new double[]{1, 2}));
+        assertEquals(2, batch.getErrorCount());
+        assertSame(FormulaParser.ARITHMETIC_ERROR, batch.getError(0));
+    }
+
+    @Test
+    public void errorsOfCustomOperationsPropagate() {
+        final var error = Calculation.errorInstance("custom");
+        final var failing = new FormulaParser(OperatorRegistry.defaults().withOperation(new Operation() {
+            @Override
+            public Calculation conclude(Calculation a, Calculation b) {
+                return error;
+            }
+
+            @Override
+            public char getOperator() {
+                return '#';
+            }
+        }));
+        for (String formula : new String[]{"1+(1#2)", "(1#2)+1", "(1#2)*2", "2*(1#2)", "2-(1#2)", "8/(1#2)",
+                "(1#2)/8", "2^(1#2)", "(1#2)^2", "-(1#2)", "(1#2)*(3#4)"}) {
+            assertEquals(ValidationResult.VALID, failing.validate(formula));
+            assertSame(formula, error, failing.calculate(formula));
+        }
+        assertSame(error, new Calculation(2).plus(error));
+        assertSame(error, error.minus(BigDecimal.ONE).multiplyWith(2).divideBy(BigDecimal.TEN).sqrt());
+    }
+
     @Test
     public void addNewOperationAndComputeWithItWithNewOperations() {
         Operation newOp = new Operation() {
@@ -55,4 +107,29 @@ public class CustomOperationTest {
         assertEquals(expected, parser.calculate(formula).getResult().intValue());
     }
 
+    @Test
+    public void parsersWithOwnRegistryAreIsolated() {
+        Operation modulo = new Operation() {
+            @Override
+            public Calculation conclude(Calculation a, Calculation b) {
+                return new Calculation(a.getResult().remainder(b.getResult()));
+            }
+
+            @Override
+            public char getOperator() {
+                return '%';
+            }
+        };
+        FormulaParser tenant = new FormulaParser(OperatorRegistry.defaults().withOperation(modulo));
+        FormulaParser restricted = new FormulaParser(OperatorRegistry.defaults().withoutOperation('^'));
+        assertEquals(2, tenant.calculate("17%5").getResult().intValue());
+        assertSame(FormulaParser.INVALID_EXPRESSION, parser.calculate("17%5"));
+        assertSame(FormulaParser.INVALID_EXPRESSION, restricted.calculate("2^3"));
+        assertEquals(8, parser.calculate("2^3").getResult().intValue());
+
+        FormulaParser.removeOperation(DefaultOperations.ADD);
+        assertFalse(parser.getOperations().contains('+'));
+        assertEquals(7, tenant.calculate("2+5").getResult().intValue());
+        assertEquals(7, restricted.calculate("2+5").getResult().intValue());
+    }
 }
@@ -0,0 +1,77 @@
+package parsing;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.kurodev.calculator.maths.*;
+
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class DoubleFormulaTest {
+    private static final List<String> FORMULAS = List.of(
+            "x^2-(10+x)",
+            "(x + y) * (x + y) / -(y - 2.5)",
+            "3 * -x + y^3 - 0.1 * 7",
+            "(x*y+1) / (x*y+1) + (x*y+1) - x"
+    );
+    private FormulaParser parser;
+
+    @Before
+    public void prepare() {
+        FormulaParser.restoreDefaultOperations();
+        parser = new FormulaParser();
+    }
+
+    @Test
+    public void testSameResultsAsInterpreter() {
+        for (String formula : FORMULAS) {
+            CompiledExpression expression = parser.compile(formula);
+            DoubleFormula generated = expression.toDoubleFormula();
+            assertTrue(formula, generated.getClass().isHidden());
+            assertSame(generated, expression.toDoubleFormula());
+            for (int i = -20; i <= 20; i++) {
+                double x = i * 0.75;
+                double y = 3 - i;
+                Map<String, BigDecimal> variables = new HashMap<>();
+                variables.put("x", BigDecimal.valueOf(x));
+                variables.put("y", BigDecimal.valueOf(y));
+                double[] values = expression.getVariableNames().stream().mapToDouble(n -> variables.get(n).doubleValue()).toArray();
+                assertEquals(formula, expression.evaluateDouble(variables), generated.evaluate(values), 0);
+            }
+        }
+    }
+
+    @Test
+    public void testCustomOperationIsInterpreted() {
+        Operation max = new Operation() {
+            @Override
+            public Calculation conclude(Calculation a, Calculation b) {
+                return new Calculation(a.getResult().max(b.getResult()));
+            }
+
+            @Override
+            public char getOperator() {
+                return '|';
+            }
+        };
+        FormulaParser custom = new FormulaParser(OperatorRegistry.defaults().withOperation(max));
+        DoubleFormula formula = custom.compile("a | b * 2").toDoubleFormula();
+        assertFalse(formula.getClass().isHidden());
+        assertEquals(8, formula.evaluate(3, 4), 0);
+        assertEquals(9, formula.evaluate(9, 4), 0);
+    }
+
+    @Test
+    public void testLongFormula() {
+        StringBuilder formula = new StringBuilder("x");
+        for (int i = 0; i < 20_000; i++) {
+            formula.append(i % 2 == 0 ? " + x * " : " - ").append(i % 7 + 1);
+        }
+        CompiledExpression expression = parser.compile(formula.toString());
+        assertEquals(expression.evaluateDouble(Map.of("x", BigDecimal.ONE)), expression.toDoubleFormula().evaluate(1), 0);
+    }
+}
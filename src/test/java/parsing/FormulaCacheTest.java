@@ -0,0 +1,79 @@
+package parsing;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.kurodev.calculator.maths.Calculation;
+import org.kurodev.calculator.maths.FormulaCache;
+import org.kurodev.calculator.maths.FormulaParser;
+import org.kurodev.calculator.maths.Operation;
+
+import static org.junit.Assert.*;
+
+public class FormulaCacheTest {
+    private FormulaParser parser;
+
+    @Before
+    public void prepare() {
+        FormulaParser.restoreDefaultOperations();
+        parser = new FormulaParser();
+        parser.enableCache(2);
+    }
+
+    @After
+    public void cleanup() {
+        FormulaParser.restoreDefaultOperations();
+    }
+
+    @Test
+    public void testHitsAndMisses() {
+        FormulaCache cache = parser.getCache();
+        assertEquals("4", parser.calculate("2 + 2").toString());
+        assertEquals("4", parser.calculate("2 + 2").toString());
+        assertSame(parser.compile("2 + 2"), parser.compile("2 + 2"));
+        assertEquals(1, cache.getMissCount());
+        assertEquals(3, cache.getHitCount());
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    public void testEvictsLeastRecentlyUsed() {
+        FormulaCache cache = parser.getCache();
+        parser.compile("1+1");
+        parser.compile("2+2");
+        parser.compile("1+1");
+        parser.compile("3+3");
+        assertEquals(2, cache.size());
+        assertEquals(1, cache.getEvictionCount());
+        parser.compile("1+1");
+        assertEquals(2, cache.getHitCount());
+        parser.compile("2+2");
+        assertEquals(4, cache.getMissCount());
+    }
+
+    @Test
+    public void testInvalidatedWhenOperationsChange() {
+        assertTrue(parser.calculate("2!2").isError());
+        FormulaParser.addOperation(new Operation() {
+            @Override
+            public Calculation conclude(Calculation a, Calculation b) {
+                return a.multiplyWith(b).plus(1);
+            }
+
+            @Override
+            public char getOperator() {
+                return '!';
+            }
+        });
+        assertEquals(5, parser.calculate("2!2").getResult().intValue());
+        FormulaParser.restoreDefaultOperations();
+        assertTrue(parser.calculate("2!2").isError());
+    }
+
+    @Test
+    public void testDisableCache() {
+        parser.disableCache();
+        assertNull(parser.getCache());
+        assertNotSame(parser.compile("2 + 2"), parser.compile("2 + 2"));
+    }
+}
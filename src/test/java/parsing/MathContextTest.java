@@ -0,0 +1,63 @@
+package parsing;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.kurodev.calculator.maths.Calculation;
+import org.kurodev.calculator.maths.CompiledExpression;
+import org.kurodev.calculator.maths.FormulaParser;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.math.RoundingMode;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class MathContextTest {
+    private static final MathContext TEN_DIGITS = new MathContext(10, RoundingMode.HALF_EVEN);
+    private FormulaParser parser;
+
+    @Before
+    public void prepare() {
+        FormulaParser.restoreDefaultOperations();
+        parser = new FormulaParser();
+    }
+
+    @Test
+    public void testBoundedPrecision() {
+        parser.setMathContext(TEN_DIGITS);
+        BigDecimal power = parser.calculate("2^10000 * x", Map.of("x", BigDecimal.valueOf(3))).getResult();
+        assertEquals(10, power.precision());
+        assertEquals(BigDecimal.valueOf(2).pow(10000, TEN_DIGITS).multiply(BigDecimal.valueOf(3), TEN_DIGITS), power);
+        assertEquals("0.3333333333", parser.calculate("1/3").toString());
+        assertEquals("0.3333333333", parser.calculate("x/3", Map.of("x", BigDecimal.ONE)).toString());
+    }
+
+    @Test
+    public void testExactByDefault() {
+        assertEquals("0", parser.calculate("1/3").toString());
+        assertEquals(3011, parser.calculate("2^10000").getResult().precision());
+        parser.setMathContext(MathContext.UNLIMITED);
+        assertNull(parser.getMathContext());
+    }
+
+    @Test
+    public void testAllTiersHonourThePrecision() {
+        parser.setMathContext(TEN_DIGITS);
+        parser.setPromotionThreshold(0);
+        CompiledExpression expression = parser.compile("x * x / 7");
+        Map<String, BigDecimal> variables = Map.of("x", new BigDecimal("123456.789"));
+        String expected = "2177368393"; //1.524157875E+10 / 7, the exact result would be 2177368392
+        assertEquals(expected, expression.evaluate(variables).getResult().toBigInteger().toString());
+        assertTrue(expression.isPromoted());
+        assertEquals(expected, expression.evaluateBigDecimalBatch(Map.of("x", new BigDecimal[]{variables.get("x")}))
+                .getBigDecimal(0).toBigInteger().toString());
+    }
+
+    @Test
+    public void testCalculationPassesItsContextOn() {
+        Calculation third = new Calculation(BigDecimal.ONE, RoundingMode.HALF_UP, new MathContext(5)).divideBy(3);
+        assertEquals("0.33333", third.toString());
+        assertEquals("0.66666", third.multiplyWith(2).toString());
+    }
+}
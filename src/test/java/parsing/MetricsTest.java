@@ -0,0 +1,89 @@
+package parsing;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.kurodev.calculator.maths.*;
+import org.kurodev.calculator.maths.FormulaMetrics.Stage;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class MetricsTest {
+    private FormulaParser parser;
+    private RecordingMetrics metrics;
+
+    @Before
+    public void prepare() {
+        FormulaParser.restoreDefaultOperations();
+        parser = new FormulaParser();
+        metrics = new RecordingMetrics();
+        parser.setMetrics(metrics);
+    }
+
+    @Test
+    public void testStagesAndErrors() {
+        assertNull(parser.calculate("x = 4"));
+        assertEquals(9, parser.calculate("x + 5").getResult().intValue());
+        assertSame(FormulaParser.INVALID_EXPRESSION, parser.calculate("6 + 2 +"));
+        assertSame(FormulaParser.UNKNOWN_VARIABLE, parser.calculate("y + 1"));
+        assertSame(FormulaParser.INVALID_ASSIGNMENT, parser.calculate("x = = 2"));
+
+        assertEquals(5, metrics.getCalculationCount());
+        assertEquals(2, metrics.getCount(Stage.NORMALIZATION));
+        assertEquals(4, metrics.getCount(Stage.VARIABLE_RESOLUTION));
+        assertEquals(4, metrics.getCount(Stage.CONVERSION));
+        assertEquals(4, metrics.getCount(Stage.EVALUATION));
+        assertEquals(4, Arrays.stream(metrics.getLatencyHistogram(Stage.EVALUATION)).sum());
+        assertEquals(1, metrics.getErrorCount(FormulaParser.INVALID_EXPRESSION));
+        assertEquals(1, metrics.getErrorCount(FormulaParser.UNKNOWN_VARIABLE));
+        assertEquals(1, metrics.getErrorCount(FormulaParser.INVALID_ASSIGNMENT));
+    }
+
+    @Test
+    public void testErrorsOfCustomOperationsShareOneCount() {
+        final var registry = OperatorRegistry.defaults().withOperation(new Operation() {
+            @Override
+            public Calculation conclude(Calculation a, Calculation b) {
+                return Calculation.errorInstance("Cannot combine " + a + " and " + b);
+            }
+
+            @Override
+            public char getOperator() {
+                return '&';
+            }
+        });
+        parser = new FormulaParser(registry);
+        parser.setMetrics(metrics);
+        for (int i = 0; i < 100; i++) {
+            assertTrue(parser.calculate(i + " & 1").isError());
+        }
+        assertSame(FormulaParser.UNKNOWN_VARIABLE, parser.calculate("y & 1"));
+
+        assertEquals(100, metrics.getOtherErrorCount());
+        assertEquals(100, metrics.getErrorCount(Calculation.errorInstance("Cannot combine 7 and 1")));
+        assertEquals(1, metrics.getErrorCount(FormulaParser.UNKNOWN_VARIABLE));
+        assertEquals(0, metrics.getErrorCount(FormulaParser.ARITHMETIC_ERROR));
+        assertTrue(metrics.toString().contains("Unknown Variable=1, "));
+        assertTrue(metrics.toString().contains("other=100}"));
+    }
+
+    @Test
+    public void testCacheHits() {
+        parser.enableCache(4);
+        parser.calculate("2 + 2");
+        parser.calculate("2 + 2");
+        parser.calculate("3 + 3");
+        assertEquals(1, metrics.getCacheHitCount());
+        assertEquals(2, metrics.getCacheMissCount());
+        assertEquals(2, metrics.getCount(Stage.CONVERSION));
+    }
+
+    @Test
+    public void testDisabled() {
+        parser.setMetrics(null);
+        parser.calculate("2 + 2");
+        assertEquals(0, metrics.getCalculationCount());
+        assertEquals(0, metrics.getCount(Stage.EVALUATION));
+    }
+}
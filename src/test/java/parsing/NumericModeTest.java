@@ -0,0 +1,92 @@
+package parsing;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.kurodev.calculator.maths.Calculation;
+import org.kurodev.calculator.maths.CompiledExpression;
+import org.kurodev.calculator.maths.FormulaParser;
+import org.kurodev.calculator.maths.NumericMode;
+import org.kurodev.calculator.maths.Operation;
+
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class NumericModeTest {
+    private static final String[] FORMULAS = {
+            "2 + 2",
+            "5 + 3 * 8 - 2",
+            "12 / (2 + 4)",
+            "x^2-(10+x)",
+            "1 (2+2) 1 (2+2) (2+2)",
+            "3 * -x + 0.25 * y",
+            "(x + y) * 0.25 / 0.5",
+            "-(x - y) * 1.5",
+    };
+    private FormulaParser parser;
+
+    @Before
+    public void prepare() {
+        FormulaParser.restoreDefaultOperations();
+        parser = new FormulaParser();
+    }
+
+    @Test
+    public void testBothModesAgree() {
+        Map<String, BigDecimal> variables = new HashMap<>();
+        for (int x = -5; x <= 5; x++) {
+            variables.put("x", BigDecimal.valueOf(x));
+            variables.put("y", BigDecimal.valueOf(x * 7L + 3));
+            for (String formula : FORMULAS) {
+                CompiledExpression expression = parser.compile(formula);
+                double exact = expression.evaluate(variables).getResult().doubleValue();
+                assertEquals(formula, exact, expression.evaluateDouble(variables), Math.ulp(exact) * 4);
+                assertEquals(formula, exact,
+                        expression.evaluate(variables, NumericMode.DOUBLE).getResult().doubleValue(), Math.ulp(exact) * 4);
+            }
+        }
+    }
+
+    @Test
+    public void testCalculateInDoubleMode() {
+        parser.setNumericMode(NumericMode.DOUBLE);
+        assertEquals("4.0", parser.calculate("2 + 2").toString());
+        assertEquals(1d / 3d, parser.calculate("1 / 3").getResult().doubleValue(), 0d);
+    }
+
+    @Test
+    public void testDivisionByZeroInDoubleMode() {
+        parser.setNumericMode(NumericMode.DOUBLE);
+        assertSame(FormulaParser.ARITHMETIC_ERROR, parser.calculate("1 / 0"));
+        assertTrue(Double.isInfinite(parser.compile("1 / 0").evaluateDouble(Map.of())));
+    }
+
+    @Test
+    public void testUnknownVariableInDoubleMode() {
+        CompiledExpression expression = parser.compile("x + 1");
+        assertSame(FormulaParser.UNKNOWN_VARIABLE, expression.evaluate(Map.of(), NumericMode.DOUBLE));
+        assertTrue(Double.isNaN(expression.evaluateDouble(Map.of())));
+    }
+
+    @Test
+    public void testCustomOperationInDoubleMode() {
+        FormulaParser.addOperation(new Operation() {
+            @Override
+            public Calculation conclude(Calculation a, Calculation b) {
+                return a.pow(2).plus(b);
+            }
+
+            @Override
+            public char getOperator() {
+                return '!';
+            }
+        });
+        try {
+            assertEquals(6d, parser.compile("2!2").evaluateDouble(Map.of()), 0d);
+        } finally {
+            FormulaParser.restoreDefaultOperations();
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package parsing;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.kurodev.calculator.maths.*;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.*;
+
+public class ParallelEvaluationTest {
+    private FormulaParser parser;
+    private ForkJoinPool pool;
+
+    @Before
+    public void prepare() {
+        parser = new FormulaParser();
+        FormulaParser.restoreDefaultOperations();
+        pool = new ForkJoinPool(4);
+    }
+
+    @After
+    public void shutdown() {
+        pool.shutdown();
+    }
+
+    private static String largeFormula(int terms) {
+        final var formula = new StringBuilder("x");
+        for (int i = 1; i < terms; i++) {
+            formula.append(i % 3 == 0 ? " - " : " + ").append(i).append("*x/(y+").append(i % 7).append(')');
+            if (i % 100 == 0) {
+                formula.append(" * (x - ").append(i).append(")^2");
+            }
+        }
+        return formula.toString();
+    }
+
+    @Test
+    public void testSameResultAsSequential() {
+        final var expression = parser.compile(largeFormula(20_000));
+        final var variables = Map.of("x", new BigDecimal("1.5"), "y", BigDecimal.valueOf(4));
+        final var expected = expression.evaluate(variables).getResult();
+        for (int size : new int[]{1, 16, 1000, ExpressionParallelism.DEFAULT_MINIMUM_SUBTREE_SIZE}) {
+            final var parallelism = ExpressionParallelism.of(pool).withMinimumSubtreeSize(size);
+            assertEquals(expected, expression.evaluate(variables, parallelism).getResult());
+        }
+    }
+
+    @Test
+    public void testRoundingOrderIsKept() {
+        parser.setMathContext(MathContext.DECIMAL32);
+        final var expression = parser.compile(largeFormula(5_000));
+        final var variables = Map.of("x", new BigDecimal("0.3"), "y", BigDecimal.valueOf(3));
+        final var parallelism = ExpressionParallelism.of(pool).withMinimumSubtreeSize(64);
+        assertEquals(expression.evaluate(variables).getResult(), expression.evaluate(variables, parallelism).getResult());
+    }
+
+    @Test
+    public void testDeepNesting() {
+        final var parallelism = ExpressionParallelism.of(pool).withMinimumSubtreeSize(16);
+        final var variables = Map.of("x", BigDecimal.ONE);
+        final var nested = parser.compile("1+(".repeat(50_000) + "x" + ")".repeat(50_000));
+        assertEquals(50_001, nested.evaluate(variables, parallelism).getResult().intValue());
+        final var negated = parser.compile("-(x+".repeat(50_000) + "x" + ")".repeat(50_000));
+        assertEquals(negated.evaluate(variables).getResult(), negated.evaluate(variables, parallelism).getResult());
+    }
+
+    @Test
+    public void testErrors() {
+        final var parallelism = ExpressionParallelism.of(pool).withMinimumSubtreeSize(8);
+        final var expression = parser.compile(largeFormula(1_000));
+        assertSame(FormulaParser.UNKNOWN_VARIABLE, expression.evaluate(Map.of("x", BigDecimal.ONE), parallelism));
+        assertSame(FormulaParser.INVALID_EXPRESSION, parser.compile("3 +").evaluate(Map.of(), parallelism));
+        final var division = parser.compile(largeFormula(1_000) + " + 1/(x-x)");
+        try {
+            division.evaluate(Map.of("x", BigDecimal.ONE, "y", BigDecimal.ONE), parallelism).getResult();
+            fail("expected a division by zero");
+        } catch (ArithmeticException expected) {
+        }
+        try {
+            ExpressionParallelism.of(pool).withMinimumSubtreeSize(0);
+            fail("expected a rejected subtree size");
+        } catch (IllegalArgumentException expected) {
+        }
+    }
+
+    @Test
+    public void testOperationsThatAreNotThreadSafeStayOnTheCallingThread() {
+        final Set<Thread> threads = ConcurrentHashMap.newKeySet();
+        final var registry = OperatorRegistry.defaults().withOperation(new Operation() {
+            @Override
+            public Calculation conclude(Calculation a, Calculation b) {
+                threads.add(Thread.currentThread());
+                return a.plus(b);
+            }
+
+            @Override
+            public char getOperator() {
+                return '&';
+            }
+        });
+        final var expression = new FormulaParser(registry).compile(largeFormula(2_000).replace('+', '&'));
+        assertTrue(expression.isValid());
+        final var variables = Map.of("x", BigDecimal.valueOf(2), "y", BigDecimal.ONE);
+        final var expected = expression.evaluate(variables).getResult();
+        threads.clear();
+        final var parallelism = ExpressionParallelism.of(pool).withMinimumSubtreeSize(8);
+        assertEquals(expected, expression.evaluate(variables, parallelism).getResult());
+        assertEquals(Set.of(Thread.currentThread()), threads);
+    }
+}
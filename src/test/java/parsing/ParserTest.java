@@ -1,10 +1,10 @@
 package parsing;
 
 import org.junit.Before;
-import org.junit.Ignore;
 import org.junit.Test;
 import org.kurodev.calculator.maths.Calculation;
 import org.kurodev.calculator.maths.FormulaParser;
+import org.kurodev.calculator.maths.ValidationResult;
 
 import java.math.BigDecimal;
 
@@ -214,8 +214,6 @@ public class ParserTest {
     }
 
     @Test
-    @Ignore
-    //TODO figure out how to handle this.
     public void testMultipleSignsMultiplicationNegative() {
         String formula = "3 * - 2";
         String expected = "-6";
@@ -224,12 +222,75 @@ public class ParserTest {
     }
 
     @Test
-    @Ignore
-    //TODO figure out how to handle this.
     public void testMultipleSignsMultiplicationNegativeParenthesis() {
         String formula = "3 * (- 2)";
         String expected = "-6";
         Calculation result = parser.calculate(formula);
         assertEquals(expected, result.toString());
     }
+
+    @Test
+    public void testParenthesisNextToParenthesisDefaultsToMultiplication() {
+        String formula = "(3+2)(1+1)";
+        String expected = "10";
+        Calculation result = parser.calculate(formula);
+        assertEquals(expected, result.toString());
+    }
+
+    @Test
+    public void testNegatedParenthesis() {
+        String formula = "4 - -(3+2)";
+        String expected = "9";
+        Calculation result = parser.calculate(formula);
+        assertEquals(expected, result.toString());
+    }
+
+    @Test
+    public void testNegatedVariable() {
+        parser.getVariables().put("x", BigDecimal.valueOf(3));
+        String formula = "2 * -x";
+        String expected = "-6";
+        Calculation result = parser.calculate(formula);
+        assertEquals(expected, result.toString());
+    }
+
+    @Test
+    public void testUnbalancedParenthesis() {
+        assertSame(FormulaParser.INVALID_EXPRESSION, parser.calculate("2 + (3"));
+        assertSame(FormulaParser.INVALID_EXPRESSION, parser.calculate("2 + 3)"));
+    }
+
+    @Test
+    public void testLongGeneratedSum() {
+        String formula = "1" + "+1".repeat(4_999);
+        assertEquals("5000", parser.calculate(formula).toString());
+    }
+
+    @Test
+    public void testPowerIsRightAssociative() {
+        assertEquals(512, parser.calculate("2^3^2").getResult().intValue());
+        assertEquals(64, parser.calculate("(2^3)^2").getResult().intValue());
+    }
+
+    @Test
+    public void testUnaryMinus() {
+        parser.setVariable("x", BigDecimal.valueOf(3));
+        assertEquals(-9, parser.calculate("-x^2").getResult().intValue());
+        assertEquals(-4, parser.calculate("-2^2").getResult().intValue());
+        assertEquals(-6, parser.calculate("-x*2").getResult().intValue());
+        assertEquals("0.5", parser.calculate("2^-1").toString());
+        assertEquals("-2.0", parser.calculate("-2").toString());
+    }
+
+    @Test
+    public void testDeepNesting() {
+        assertEquals(1, parser.calculate("(".repeat(500) + "1" + ")".repeat(500)).getResult().intValue());
+        String deep = "(".repeat(100_000) + "1+1" + ")".repeat(100_000);
+        assertTrue(parser.validate(deep).isValid());
+        assertEquals(2, parser.calculate(deep).getResult().intValue());
+        assertEquals(2, parser.calculate("2" + "^1".repeat(100_000)).getResult().intValue());
+        String unclosed = "(".repeat(100_000) + "1";
+        assertEquals(ValidationResult.Kind.UNMATCHED_PARENTHESIS, parser.validate(unclosed).getKind());
+        assertEquals(99_999, parser.validate(unclosed).getOffset());
+    }
 }
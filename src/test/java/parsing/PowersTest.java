@@ -0,0 +1,114 @@
+package parsing;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.kurodev.calculator.maths.FormulaParser;
+import org.kurodev.calculator.maths.NumericMode;
+import org.kurodev.calculator.maths.Powers;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.math.RoundingMode;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class PowersTest {
+    private static final MathContext TWENTY_DIGITS = new MathContext(20, RoundingMode.HALF_EVEN);
+    private FormulaParser parser;
+
+    @Before
+    public void prepare() {
+        FormulaParser.restoreDefaultOperations();
+        parser = new FormulaParser();
+    }
+
+    @Test
+    public void testIntegerExponents() {
+        assertEquals("1024", Powers.pow(BigDecimal.valueOf(2), BigDecimal.valueOf(10), null).toString());
+        assertEquals("0.25", Powers.pow(BigDecimal.valueOf(2), BigDecimal.valueOf(-2), null).toString());
+        assertEquals(Powers.DEFAULT_CONTEXT.getPrecision(),
+                Powers.pow(BigDecimal.valueOf(3), BigDecimal.valueOf(-1), null).precision());
+        var base = new BigDecimal("1.0000001");
+        assertEquals(base.pow(1_000_000, TWENTY_DIGITS),
+                Powers.pow(base, BigDecimal.valueOf(1_000_000), TWENTY_DIGITS));
+        assertEquals(base.pow(-1_000_000, TWENTY_DIGITS),
+                Powers.pow(base, BigDecimal.valueOf(-1_000_000), TWENTY_DIGITS));
+    }
+
+    @Test
+    public void testFractionalExponents() {
+        assertEquals(BigDecimal.valueOf(2).sqrt(TWENTY_DIGITS),
+                Powers.pow(BigDecimal.valueOf(2), new BigDecimal("0.5"), TWENTY_DIGITS));
+        assertEquals(new BigDecimal("316.22776601683793320"),
+                Powers.pow(BigDecimal.TEN, new BigDecimal("2.5"), TWENTY_DIGITS));
+        assertEquals(new BigDecimal("0.0031622776601683793320"),
+                Powers.pow(BigDecimal.TEN, new BigDecimal("-2.5"), TWENTY_DIGITS));
+        var base = new BigDecimal("1.000001");
+        var reference = base.pow(1_000_000, MathContext.DECIMAL128).multiply(base.sqrt(MathContext.DECIMAL128));
+        assertEquals(reference.round(TWENTY_DIGITS), Powers.pow(base, new BigDecimal("1000000.5"), TWENTY_DIGITS));
+        assertEquals(1.5, parser.calculate("2.25^0.5").getResult().doubleValue(), 0);
+        assertEquals(Math.pow(7, 1.3), parser.compile("7^1.3").evaluate(Map.of(), NumericMode.DOUBLE)
+                .getResult().doubleValue(), 0);
+        try {
+            parser.calculate("(0-8)^1.5").getResult();
+            fail("fractional power of a negative number");
+        } catch (ArithmeticException expected) {
+        }
+    }
+
+    @Test
+    public void testLargeExactPowersAreRounded() {
+        final var two = BigDecimal.valueOf(2);
+        assertEquals(two.pow(1000), Powers.pow(two, BigDecimal.valueOf(1000), null));
+        final var max = Powers.pow(two, BigDecimal.valueOf(Integer.MAX_VALUE), null);
+        assertEquals(Powers.DEFAULT_CONTEXT.getPrecision(), max.precision());
+        // 2^(2^31 - 1) = 10^646456992.9...
+        assertEquals(646_456_992, max.precision() - (long) max.scale() - 1);
+        assertEquals(max.negate(), Powers.pow(two.negate(), BigDecimal.valueOf(Integer.MAX_VALUE), null));
+        assertEquals(max, parser.calculate("2^2147483647").getResult());
+        final var large = parser.calculate("3^100000000").getResult();
+        assertEquals(Powers.DEFAULT_CONTEXT.getPrecision(), large.precision());
+        assertEquals(47_712_125, large.precision() - (long) large.scale() - 1);
+        final var small = Powers.pow(two, BigDecimal.valueOf(-1_000_000_000), null);
+        assertEquals(Powers.DEFAULT_CONTEXT.getPrecision(), small.precision());
+    }
+
+    @Test
+    public void testExponentsBeyondIntRange() {
+        final var even = new BigDecimal("3000000000");
+        final var odd = new BigDecimal("3000000001");
+        final var minusOne = BigDecimal.ONE.negate();
+        assertEquals(BigDecimal.ONE, Powers.pow(minusOne, even, null));
+        assertEquals(minusOne, Powers.pow(minusOne, odd, null));
+        assertEquals(BigDecimal.ONE, Powers.pow(minusOne, new BigDecimal("3E+9"), null));
+        assertEquals(minusOne, Powers.pow(minusOne, odd.negate(), TWENTY_DIGITS));
+        assertEquals(BigDecimal.ZERO, Powers.pow(BigDecimal.ZERO, odd, null));
+        final var base = new BigDecimal("1.0000000001");
+        final var positive = Powers.pow(base, odd, TWENTY_DIGITS);
+        assertEquals(Math.exp(0.3), positive.doubleValue(), 1e-9);
+        assertEquals(positive.negate(), Powers.pow(base.negate(), odd, TWENTY_DIGITS));
+        assertEquals(BigDecimal.ONE, parser.calculate("(0-1)^3000000000").getResult());
+        try {
+            Powers.pow(BigDecimal.ZERO, odd.negate(), null);
+            fail("zero to a negative power");
+        } catch (ArithmeticException expected) {
+        }
+        try {
+            Powers.pow(BigDecimal.TEN.negate(), odd, TWENTY_DIGITS);
+            fail("power out of range");
+        } catch (ArithmeticException expected) {
+            assertEquals("Power out of range", expected.getMessage());
+        }
+    }
+
+    @Test
+    public void testSquareRoot() {
+        var two = BigDecimal.valueOf(2);
+        assertEquals(two.sqrt(Powers.DEFAULT_CONTEXT), Powers.sqrt(two, null));
+        assertEquals(new BigDecimal("1.2E+50"), Powers.sqrt(new BigDecimal("1.44E+100"), TWENTY_DIGITS)
+                .stripTrailingZeros());
+        assertEquals("0.03", Powers.sqrt(new BigDecimal("0.0009"), null).toString());
+        assertEquals(BigDecimal.ZERO, Powers.sqrt(BigDecimal.ZERO, TWENTY_DIGITS));
+    }
+}
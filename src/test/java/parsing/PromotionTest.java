@@ -0,0 +1,156 @@
+package parsing;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.kurodev.calculator.maths.*;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class PromotionTest {
+    private static final List<String> FORMULAS = List.of(
+            "x^2-(10+x)",
+            "(x + y) * (x + y) / -(y - 2.5)",
+            "3 * -x + y^3 - 0.1 * 7 / 3",
+            "(x*y+1) / (x*y+1) + (x*y+1) - x"
+    );
+    private FormulaParser interpreted;
+    private FormulaParser promoted;
+
+    @Before
+    public void prepare() {
+        FormulaParser.restoreDefaultOperations();
+        interpreted = new FormulaParser();
+        interpreted.setPromotionThreshold(-1);
+        promoted = new FormulaParser();
+        promoted.setPromotionThreshold(3);
+    }
+
+    @Test
+    public void testSameResultsAsInterpreter() {
+        for (String formula : FORMULAS) {
+            CompiledExpression reference = interpreted.compile(formula);
+            CompiledExpression expression = promoted.compile(formula);
+            for (int i = 1; i <= 10; i++) {
+                Map<String, BigDecimal> variables = Map.of("x", BigDecimal.valueOf(i * 1.25), "y", BigDecimal.valueOf(7 - i));
+                assertEquals(formula, reference.evaluate(variables).toString(), expression.evaluate(variables).toString());
+                assertEquals(formula, reference.evaluateDouble(variables), expression.evaluateDouble(variables), 0);
+            }
+            assertTrue(formula, expression.isPromoted());
+            assertFalse(formula, reference.isPromoted());
+        }
+    }
+
+    @Test
+    public void testFailuresFallBackToTheInterpreter() {
+        promoted.setPromotionThreshold(0);
+        CompiledExpression expression = promoted.compile("10 / x");
+        assertEquals("5", expression.evaluate(Map.of("x", BigDecimal.valueOf(2))).toString());
+        assertTrue(expression.isPromoted());
+        Calculation lazy = expression.evaluate(Map.of("x", BigDecimal.ZERO));
+        try {
+            lazy.getResult();
+            fail("division by zero");
+        } catch (ArithmeticException expected) {
+            //as without promotion, only reading the result fails
+        }
+        assertSame(FormulaParser.UNKNOWN_VARIABLE, expression.evaluate(Map.of()));
+    }
+
+    @Test
+    public void testSharedSubexpressionsAreComputedOnce() {
+        final var calls = new AtomicInteger();
+        Operation counted = new Operation() {
+            @Override
+            public Calculation conclude(Calculation a, Calculation b) {
+                calls.incrementAndGet();
+                return a.plus(b);
+            }
+
+            @Override
+            public double conclude(double a, double b) {
+                calls.incrementAndGet();
+                return a + b;
+            }
+
+            @Override
+            public boolean isPure() {
+                return true;
+            }
+
+            @Override
+            public char getOperator() {
+                return '&';
+            }
+        };
+        FormulaParser custom = new FormulaParser(OperatorRegistry.defaults().withOperation(counted));
+        custom.setPromotionThreshold(0);
+        CompiledExpression expression = custom.compile("(x & y) * (x & y) - (x & y)");
+        assertTrue(expression.getDeduplicatedNodeCount() > 0);
+        final var variables = Map.of("x", BigDecimal.valueOf(2), "y", BigDecimal.ONE);
+        assertEquals(6, expression.evaluate(variables).getResult().intValue());
+        assertEquals(6, expression.evaluateDouble(variables), 0);
+        assertTrue(expression.isPromoted());
+        calls.set(0);
+        assertEquals(6, expression.evaluate(variables).getResult().intValue());
+        assertEquals(1, calls.get());
+        calls.set(0);
+        assertEquals(6, expression.evaluateDouble(variables), 0);
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    public void testCustomOperation() {
+        Operation max = new Operation() {
+            @Override
+            public Calculation conclude(Calculation a, Calculation b) {
+                return new Calculation(a.getResult().max(b.getResult()));
+            }
+
+            @Override
+            public boolean isPure() {
+                return true;
+            }
+
+            @Override
+            public char getOperator() {
+                return '|';
+            }
+        };
+        FormulaParser custom = new FormulaParser(OperatorRegistry.defaults().withOperation(max));
+        custom.setPromotionThreshold(0);
+        CompiledExpression expression = custom.compile("a | b * 2");
+        assertEquals(8, expression.evaluate(Map.of("a", BigDecimal.valueOf(3), "b", BigDecimal.valueOf(4))).getResult().intValue());
+        assertEquals(9, expression.evaluateDouble(Map.of("a", BigDecimal.valueOf(9), "b", BigDecimal.valueOf(4))), 0);
+        assertTrue(expression.isPromoted());
+    }
+
+    @Test
+    public void testOperationsWithSideEffectsAreNotPromoted() {
+        final var calls = new AtomicInteger();
+        Operation logged = new Operation() {
+            @Override
+            public Calculation conclude(Calculation a, Calculation b) {
+                calls.incrementAndGet();
+                return a.divideBy(b);
+            }
+
+            @Override
+            public char getOperator() {
+                return '&';
+            }
+        };
+        FormulaParser custom = new FormulaParser(OperatorRegistry.defaults().withOperation(logged));
+        custom.setPromotionThreshold(0);
+        CompiledExpression expression = custom.compile("x & 2 - x");
+        for (int i = 1; i <= 3; i++) {
+            assertEquals(1, expression.evaluate(Map.of("x", BigDecimal.ONE)).getResult().intValue());
+            assertEquals(i, calls.get());
+        }
+        assertFalse(expression.isPromoted());
+    }
+}
@@ -0,0 +1,93 @@
+package parsing;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.kurodev.calculator.maths.FormulaParser;
+
+import java.math.BigDecimal;
+
+import static org.junit.Assert.*;
+
+public class ReactiveVariablesTest {
+    private FormulaParser parser;
+
+    @Before
+    public void prepare() {
+        FormulaParser.restoreDefaultOperations();
+        parser = new FormulaParser();
+        parser.setReactive(true);
+    }
+
+    private int valueOf(String name) {
+        return parser.getVariables().get(name).intValue();
+    }
+
+    @Test
+    public void testDependentsFollowTheirInputs() {
+        assertNull(parser.calculate("a = 3"));
+        assertNull(parser.calculate("b = a * 2"));
+        assertNull(parser.calculate("c = a + b"));
+        assertEquals(9, valueOf("c"));
+        assertNull(parser.calculate("a = 10"));
+        assertEquals(20, valueOf("b"));
+        assertEquals(30, valueOf("c"));
+        parser.setVariable("a", BigDecimal.ONE);
+        assertEquals(2, valueOf("b"));
+        assertEquals(3, parser.calculate("c").getResult().intValue());
+    }
+
+    @Test
+    public void testRedefinedFormulaUpdatesDependents() {
+        parser.calculate("a = 3");
+        parser.calculate("b = a * 2");
+        parser.calculate("c = b + 1");
+        assertNull(parser.calculate("b = a * a"));
+        assertEquals(10, valueOf("c"));
+        parser.calculate("a = 4");
+        assertEquals(17, valueOf("c"));
+    }
+
+    @Test
+    public void testArithmeticErrorKeepsPreviousFormula() {
+        parser.calculate("a = 0");
+        parser.calculate("b = a + 1");
+        assertSame(FormulaParser.ARITHMETIC_ERROR, parser.calculate("b = 1/a"));
+        assertEquals(1, valueOf("b"));
+        parser.calculate("a = 2");
+        assertEquals(3, valueOf("b"));
+    }
+
+    @Test
+    public void testCircularDependency() {
+        parser.calculate("a = 1");
+        parser.calculate("b = a + 1");
+        parser.calculate("c = b + 1");
+        assertSame(FormulaParser.CIRCULAR_DEPENDENCY, parser.calculate("a = c + 1"));
+        assertSame(FormulaParser.CIRCULAR_DEPENDENCY, parser.calculate("a = a + 1"));
+        assertEquals(1, valueOf("a"));
+        parser.calculate("a = 5");
+        assertEquals(7, valueOf("c"));
+    }
+
+    @Test
+    public void testFailingDependentLosesItsValue() {
+        parser.calculate("a = 2");
+        parser.calculate("b = 10 / a");
+        parser.calculate("c = b + 1");
+        parser.calculate("a = 0");
+        assertSame(FormulaParser.UNKNOWN_VARIABLE, parser.calculate("c"));
+        parser.calculate("a = 5");
+        assertEquals(3, valueOf("c"));
+    }
+
+    @Test
+    public void testPlainModeKeepsSnapshots() {
+        parser.setReactive(false);
+        parser.calculate("a = 3");
+        parser.calculate("b = a * 2");
+        parser.calculate("a = 10");
+        assertEquals(6, valueOf("b"));
+        assertNull(parser.calculate("a = a + 1"));
+        assertEquals(11, valueOf("a"));
+    }
+}
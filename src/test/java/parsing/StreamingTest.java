@@ -0,0 +1,101 @@
+package parsing;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.kurodev.calculator.maths.CompiledExpression;
+import org.kurodev.calculator.maths.FormulaParser;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.math.BigDecimal;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class StreamingTest {
+    private FormulaParser parser;
+
+    @Before
+    public void prepare() {
+        parser = new FormulaParser();
+        FormulaParser.restoreDefaultOperations();
+    }
+
+    @Test
+    public void testLargeFormula() throws IOException {
+        final int terms = 200_000;
+        //x + 2*x + 3*x + ... generated while it is read, the formula never exists as a string
+        final var formula = new Reader() {
+            private int term = 1;
+            private String pending = "x";
+
+            @Override
+            public int read(char[] buffer, int offset, int length) {
+                if (pending.isEmpty()) {
+                    if (term == terms) return -1;
+                    term++;
+                    pending = " + " + term + "*x";
+                }
+                final int read = Math.min(length, pending.length());
+                pending.getChars(0, read, buffer, offset);
+                pending = pending.substring(read);
+                return read;
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+        CompiledExpression expression = parser.compile(formula);
+        assertTrue(expression.isValid());
+        final long sum = (long) terms * (terms + 1) / 2;
+        assertEquals(BigDecimal.valueOf(sum * 3), expression.evaluate(Map.of("x", BigDecimal.valueOf(3))).getResult());
+    }
+
+    @Test
+    public void testTokensAcrossChunks() throws IOException {
+        for (int padding = 8180; padding < 8200; padding++) {
+            final var formula = " ".repeat(padding) + "12345.678 * value - (2 + value)";
+            final var variables = Map.of("value", BigDecimal.TEN);
+            assertEquals(parser.compile(formula).evaluate(variables).getResult(),
+                    parser.compile(new StringReader(formula)).evaluate(variables).getResult());
+        }
+    }
+
+    @Test
+    public void testChannel() throws IOException {
+        final var bytes = "(1 + 2) * x".getBytes(StandardCharsets.UTF_8);
+        CompiledExpression expression = parser.compile(Channels.newChannel(new ByteArrayInputStream(bytes)),
+                StandardCharsets.UTF_8);
+        assertEquals(12, expression.evaluate(Map.of("x", BigDecimal.valueOf(4))).getResult().intValue());
+    }
+
+    @Test
+    public void testInvalidFormula() throws IOException {
+        assertFalse(parser.compile(new StringReader("3 * (x + ")).isValid());
+    }
+
+    @Test
+    public void testReadError() {
+        final var failing = new Reader() {
+            @Override
+            public int read(char[] buffer, int offset, int length) throws IOException {
+                throw new IOException("broken");
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+        try {
+            parser.compile(failing);
+            fail("expected the read error");
+        } catch (IOException e) {
+            assertEquals("broken", e.getMessage());
+        }
+    }
+}
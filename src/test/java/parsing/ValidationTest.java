@@ -0,0 +1,83 @@
+package parsing;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.kurodev.calculator.maths.FormulaParser;
+import org.kurodev.calculator.maths.ValidationResult;
+import org.kurodev.calculator.maths.ValidationResult.Kind;
+
+import java.math.BigDecimal;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class ValidationTest {
+    private FormulaParser parser;
+
+    @Before
+    public void prepare() {
+        FormulaParser.restoreDefaultOperations();
+        parser = new FormulaParser();
+    }
+
+    private void assertInvalid(String formula, Kind kind, int offset, String token) {
+        ValidationResult result = parser.validate(formula);
+        assertEquals(formula, kind, result.getKind());
+        assertEquals(formula, offset, result.getOffset());
+        assertEquals(formula, token, result.getToken());
+    }
+
+    @Test
+    public void testValidFormulas() {
+        assertSame(ValidationResult.VALID, parser.validate("3 + 4 * -x"));
+        assertSame(ValidationResult.VALID, parser.validate("2(x+1)^2"));
+        assertSame(ValidationResult.VALID, parser.validate("y = 3 * x"));
+        assertNull(ValidationResult.VALID.getError());
+    }
+
+    @Test
+    public void testErrorPositions() {
+        assertInvalid("3 + * 4", Kind.MISSING_OPERAND, 4, "*");
+        assertInvalid("3 +", Kind.MISSING_OPERAND, 3, "");
+        assertInvalid("", Kind.MISSING_OPERAND, 0, "");
+        assertInvalid("3 # 4", Kind.UNKNOWN_OPERATOR, 2, "#");
+        assertInvalid("(3 + 4", Kind.UNMATCHED_PARENTHESIS, 0, "(");
+        assertInvalid("3 + 4)", Kind.UNMATCHED_PARENTHESIS, 5, ")");
+        assertInvalid("x = = 2", Kind.INVALID_ASSIGNMENT, 4, "=");
+        assertInvalid("1x = 2", Kind.INVALID_ASSIGNMENT, 0, "1x");
+        assertInvalid("y = ", Kind.INVALID_ASSIGNMENT, 4, "");
+        assertInvalid("y = 2 +", Kind.MISSING_OPERAND, 7, "");
+    }
+
+    @Test
+    public void testErrorsMatchCalculation() {
+        for (String formula : new String[]{"6 + 2 +", "(1", "x = = 2", "y = ", "3 $ 3"}) {
+            assertSame(formula, parser.calculate(formula), parser.validate(formula).getError());
+        }
+    }
+
+    @Test
+    public void testNothingThrows() {
+        final var random = new Random(42);
+        final var alphabet = "0123456789.xy+-*/^()# =\t";
+        for (int i = 0; i < 10_000; i++) {
+            final var formula = new StringBuilder();
+            for (int length = random.nextInt(12); length > 0; length--) {
+                formula.append(alphabet.charAt(random.nextInt(alphabet.length())));
+            }
+            final var text = formula.toString();
+            final var result = parser.validate(text);
+            if (text.indexOf('=') < 0) {
+                assertEquals(text, result.isValid(), parser.compile(text).isValid());
+            }
+        }
+    }
+
+    @Test
+    public void testResultOrDefault() {
+        assertEquals(BigDecimal.ONE, FormulaParser.INVALID_EXPRESSION.getResultOrDefault(BigDecimal.ONE));
+        assertEquals(BigDecimal.ONE, parser.calculate("1/0").getResultOrDefault(BigDecimal.ONE));
+        assertSame(FormulaParser.ARITHMETIC_ERROR, parser.calculate("x = 1/0"));
+        assertEquals(5, parser.calculate("2+3").getResultOrDefault(null).intValue());
+    }
+}